@@ -0,0 +1,128 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.Ticket;
+import com.documentAi.documentAi.service.TicketIdAllocator;
+import com.documentAi.documentAi.service.TicketService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticket writes against in-memory H2 in a context that only holds JPA and the ticket
+ * beans; Camunda, Ollama, mail and web are left out. Compares one transaction per insert,
+ * as the BPMN delegate used to do, with {@link TicketService}'s group commit, and measures
+ * ticket ids drawn from database-reserved blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketRepositoryBenchmark {
+
+	private static final int BATCH = 100;
+
+	private ConfigurableApplicationContext context;
+	private TicketRepository ticketRepository;
+	private TicketService ticketService;
+	private TicketIdAllocator ticketIdAllocator;
+	private TransactionTemplate transactionTemplate;
+	private final AtomicLong sequence = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(BenchmarkConfiguration.class)
+				.web(WebApplicationType.NONE)
+				.properties("spring.datasource.url=jdbc:h2:mem:ticket-bench;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"logging.level.root=WARN")
+				.run();
+		ticketRepository = context.getBean(TicketRepository.class);
+		ticketService = context.getBean(TicketService.class);
+		ticketIdAllocator = context.getBean(TicketIdAllocator.class);
+		transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void insertOnePerTransaction() {
+		for (int i = 0; i < BATCH; i++) {
+			Ticket ticket = newTicket();
+			transactionTemplate.executeWithoutResult(tx -> ticketRepository.save(ticket));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void insertGroupCommitted() throws InterruptedException, ExecutionException {
+		List<CompletableFuture<Void>> saved = new ArrayList<>(BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			saved.add(ticketService.save(newTicket()));
+		}
+		CompletableFuture.allOf(saved.toArray(new CompletableFuture[0])).get();
+	}
+
+	/**
+	 * Eight callers each waiting for their own insert, like Camunda job executor threads.
+	 */
+	@Benchmark
+	@Threads(8)
+	public void insertGroupCommittedConcurrently() throws InterruptedException, ExecutionException {
+		ticketService.save(newTicket()).get();
+	}
+
+	@Benchmark
+	public String nextTicketId() {
+		return ticketIdAllocator.nextId();
+	}
+
+	private Ticket newTicket() {
+		return new Ticket("BENCH" + sequence.incrementAndGet(), "In Progress");
+	}
+
+	@SpringBootConfiguration
+	@ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+			TransactionAutoConfiguration.class})
+	@EntityScan(basePackageClasses = Ticket.class)
+	@EnableJpaRepositories(basePackageClasses = TicketRepository.class)
+	@Import({TicketService.class, TicketIdAllocator.class})
+	static class BenchmarkConfiguration {
+	}
+}
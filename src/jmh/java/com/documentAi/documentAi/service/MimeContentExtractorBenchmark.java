@@ -0,0 +1,123 @@
+package com.documentAi.documentAi.service;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a raw message and extracts its text, on fixtures shaped like real claim mail:
+ * <ul>
+ *     <li>{@code plain}: a single text/plain body,</li>
+ *     <li>{@code alternative}: multipart/alternative with plain and HTML versions,</li>
+ *     <li>{@code claim}: multipart/mixed with a nested multipart/alternative, two photos and a 2 MB PDF,</li>
+ *     <li>{@code html}: an HTML-only newsletter-style body.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeContentExtractorBenchmark {
+
+	private static final String TEXT = """
+			Hello,
+
+			I would like to file a claim for water damage in my kitchen. A pipe under the sink burst on Sunday
+			night and flooded the floor. My policy number is HP-2291-4471. Photos and the plumber's invoice
+			are attached.
+
+			Kind regards,
+			Jane Smith
+			""";
+
+	@Param({"plain", "alternative", "claim", "html"})
+	public String fixture;
+
+	private final Session session = Session.getInstance(new Properties());
+	private final MimeContentExtractor extractor = new MimeContentExtractor(65536);
+	private byte[] raw;
+
+	@Setup
+	public void setUp() throws MessagingException, IOException {
+		MimeMessage message = new MimeMessage(session);
+		message.setFrom(new InternetAddress("jane.smith@example.com", "Jane Smith"));
+		message.setSubject("Water damage claim HP-2291-4471");
+		switch (fixture) {
+			case "plain" -> message.setText(TEXT, "UTF-8");
+			case "alternative" -> message.setContent(alternative());
+			case "claim" -> {
+				MimeMultipart mixed = new MimeMultipart("mixed");
+				MimeBodyPart body = new MimeBodyPart();
+				body.setContent(alternative());
+				mixed.addBodyPart(body);
+				mixed.addBodyPart(attachment("kitchen-1.jpg", "image/jpeg", 400_000));
+				mixed.addBodyPart(attachment("kitchen-2.jpg", "image/jpeg", 400_000));
+				mixed.addBodyPart(attachment("invoice.pdf", "application/pdf", 2_000_000));
+				message.setContent(mixed);
+			}
+			case "html" -> message.setContent(html().repeat(20), "text/html; charset=UTF-8");
+			default -> throw new IllegalArgumentException(fixture);
+		}
+		message.saveChanges();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		raw = out.toByteArray();
+	}
+
+	@Benchmark
+	public String extract() throws MessagingException, IOException {
+		return extractor.extractText(new MimeMessage(session, new ByteArrayInputStream(raw)));
+	}
+
+	private static MimeMultipart alternative() throws MessagingException {
+		MimeMultipart alternative = new MimeMultipart("alternative");
+		MimeBodyPart plain = new MimeBodyPart();
+		plain.setText(TEXT, "UTF-8");
+		alternative.addBodyPart(plain);
+		MimeBodyPart html = new MimeBodyPart();
+		html.setContent(html(), "text/html; charset=UTF-8");
+		alternative.addBodyPart(html);
+		return alternative;
+	}
+
+	private static String html() {
+		return "<html><head><style>p { margin: 0 }</style></head><body>"
+				+ TEXT.lines().map(line -> "<p>" + line + "</p>").reduce("", String::concat)
+				+ "<table><tr><td>Policy</td><td>HP-2291-4471</td></tr></table></body></html>";
+	}
+
+	private static MimeBodyPart attachment(String name, String type, int size) throws MessagingException {
+		byte[] bytes = new byte[size];
+		new SplittableRandom(size).nextBytes(bytes);
+		MimeBodyPart part = new MimeBodyPart();
+		part.setDataHandler(new DataHandler(new ByteArrayDataSource(bytes, type)));
+		part.setFileName(name);
+		part.setDisposition(MimeBodyPart.ATTACHMENT);
+		return part;
+	}
+}
@@ -0,0 +1,49 @@
+package com.documentAi.documentAi.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one generated reply into subject and HTML body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+	private static final String REPLY = """
+			Subject: 7KQ2M9XD - Your claim for water damage has been received
+
+			Body:
+			<p>Dear Jane Smith,</p>
+
+			<p>Thank you for reporting the water damage at your property. We have registered your claim and an adjuster
+			will contact you within two business days.
+			- Please keep receipts for emergency repairs
+			- Take photos of all damaged items
+			- Do not discard damaged materials until the adjuster has seen them</p>
+
+			<p>Your ticket number is 7KQ2M9XD. Please quote it in any further correspondence about this claim.</p>
+
+			<p>Sincerely,<br>DataNinjas Insurance corp</p>
+			<p><i>This is an automated message; please do not reply directly to this email.</i></p>
+			""";
+
+	@Benchmark
+	public Map<String, String> parse() {
+		return ResponseParser.parse(REPLY);
+	}
+}
@@ -0,0 +1,49 @@
+package com.documentAi.documentAi.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticket id throughput with blocks reserved from an in-memory counter, so only the
+ * allocator itself is measured. The database round trip per block is covered by
+ * {@code TicketRepositoryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketIdAllocatorBenchmark {
+
+	private TicketIdAllocator allocator;
+
+	@Setup
+	public void setUp() {
+		AtomicLong sequence = new AtomicLong(1);
+		allocator = new TicketIdAllocator(sequence::getAndAdd, 100);
+	}
+
+	@Benchmark
+	public String nextId() {
+		return allocator.nextId();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String nextIdContended() {
+		return allocator.nextId();
+	}
+}
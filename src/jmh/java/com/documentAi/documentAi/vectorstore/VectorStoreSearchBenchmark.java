@@ -0,0 +1,95 @@
+package com.documentAi.documentAi.vectorstore;
+
+import com.documentAi.documentAi.support.StubEmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-5 similarity search over 1k, 10k and 100k synthetic chunks: the brute-force
+ * {@link SimpleVectorStore} the project started with against the HNSW-backed
+ * {@link FileVectorStore}. Embeddings come from {@link StubEmbeddingModel}, so only the
+ * search itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class VectorStoreSearchBenchmark {
+
+	private static final int DIMENSIONS = 384;
+	private static final int QUERIES = 64;
+
+	@Param({"1000", "10000", "100000"})
+	public int chunks;
+
+	private SimpleVectorStore simpleVectorStore;
+	private FileVectorStore fileVectorStore;
+	private Path directory;
+	private final List<SearchRequest> queries = new ArrayList<>();
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS);
+		List<Document> documents = new ArrayList<>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			documents.add(new Document("chunk-" + i, "Policy clause " + i, Map.of("source", "policy-" + (i % 50) + ".pdf")));
+		}
+		simpleVectorStore = new SimpleVectorStore(embeddingModel);
+		simpleVectorStore.add(documents);
+
+		directory = Files.createTempDirectory("vector-bench");
+		fileVectorStore = new FileVectorStore(embeddingModel, directory.resolve("store.bin"), "stub", 16, 200, 64, 2000);
+		fileVectorStore.add(documents);
+
+		for (int i = 0; i < QUERIES; i++) {
+			String query = "How do I claim for damage number " + i;
+			queries.add(SearchRequest.query(query).withTopK(5));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(directory);
+	}
+
+	@Benchmark
+	public List<Document> simpleVectorStore() {
+		return simpleVectorStore.similaritySearch(nextQuery());
+	}
+
+	@Benchmark
+	public List<Document> fileVectorStore() {
+		return fileVectorStore.similaritySearch(nextQuery());
+	}
+
+	private SearchRequest nextQuery() {
+		next = (next + 1) % QUERIES;
+		return queries.get(next);
+	}
+}
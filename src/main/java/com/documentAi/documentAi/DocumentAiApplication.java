@@ -1,13 +1,15 @@
 package com.documentAi.documentAi;
 
+import com.documentAi.documentAi.vectorstore.FileVectorStore;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.nio.file.Path;
+
 @SpringBootApplication
 @EnableScheduling
 public class DocumentAiApplication {
@@ -17,7 +19,15 @@ public class DocumentAiApplication {
 	}
 
 	@Bean
-	VectorStore vectorStore(EmbeddingModel embeddingModel) {
-		return new SimpleVectorStore(embeddingModel);
+	FileVectorStore vectorStore(EmbeddingModel embeddingModel,
+								@Value("${email.vectorstore.path:data/vector-store.bin}") Path path,
+								@Value("${spring.ai.ollama.embedding.options.model}") String embeddingModelName,
+								@Value("${email.vectorstore.hnsw.m:16}") int m,
+								@Value("${email.vectorstore.hnsw.ef-construction:200}") int efConstruction,
+								@Value("${email.vectorstore.hnsw.ef-search:64}") int efSearch,
+								@Value("${email.vectorstore.hnsw.exact-search-below:2000}") int exactSearchBelow,
+								@Value("${email.vectorstore.embedding-batch-size:32}") int embeddingBatchSize) {
+		return new FileVectorStore(embeddingModel, path, embeddingModelName, m, efConstruction, efSearch, exactSearchBelow,
+				embeddingBatchSize);
 	}
 }
@@ -0,0 +1,31 @@
+package com.documentAi.documentAi.config;
+
+import com.documentAi.documentAi.llm.GatedChatModel;
+import com.documentAi.documentAi.llm.GatedEmbeddingModel;
+import com.documentAi.documentAi.llm.LlmGateway;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Puts the {@link LlmGateway} in front of the Ollama models, so the chat client, the
+ * vector store and the response cache all share its limits, retries and circuit breaker.
+ */
+@Configuration
+public class LlmConfig {
+
+    @Bean
+    @Primary
+    public ChatModel gatedChatModel(@Qualifier("ollamaChatModel") ChatModel ollamaChatModel, LlmGateway gateway) {
+        return new GatedChatModel(ollamaChatModel, gateway);
+    }
+
+    @Bean
+    @Primary
+    public EmbeddingModel gatedEmbeddingModel(@Qualifier("ollamaEmbeddingModel") EmbeddingModel ollamaEmbeddingModel, LlmGateway gateway) {
+        return new GatedEmbeddingModel(ollamaEmbeddingModel, gateway);
+    }
+}
@@ -0,0 +1,26 @@
+package com.documentAi.documentAi.controller;
+
+import com.documentAi.documentAi.model.ClassifierStats;
+import com.documentAi.documentAi.service.EmailClassifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/classifier")
+public class ClassifierController {
+
+    private final EmailClassifier emailClassifier;
+
+    public ClassifierController(EmailClassifier emailClassifier) {
+        this.emailClassifier = emailClassifier;
+    }
+
+    /**
+     * How often the local classifier decided the category without calling the LLM.
+     */
+    @GetMapping("/stats")
+    public ClassifierStats stats() {
+        return emailClassifier.stats();
+    }
+}
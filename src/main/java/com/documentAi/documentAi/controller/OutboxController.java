@@ -0,0 +1,36 @@
+package com.documentAi.documentAi.controller;
+
+import com.documentAi.documentAi.domain.OutboxEmail;
+import com.documentAi.documentAi.service.OutboxSender;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/outbox")
+public class OutboxController {
+
+    private final OutboxSender outboxSender;
+
+    public OutboxController(OutboxSender outboxSender) {
+        this.outboxSender = outboxSender;
+    }
+
+    /**
+     * Replies that were interrupted during sending and may not have reached the customer.
+     */
+    @GetMapping("/uncertain")
+    public List<OutboxEmail> uncertain() {
+        return outboxSender.uncertain();
+    }
+
+    @PostMapping("/{id}/resend")
+    public ResponseEntity<Void> resend(@PathVariable long id) {
+        return outboxSender.resend(id) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.documentAi.documentAi.controller;
+
+import com.documentAi.documentAi.domain.Ticket;
+import com.documentAi.documentAi.service.TicketService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/tickets")
+public class TicketController {
+
+    private final TicketService ticketService;
+
+    public TicketController(TicketService ticketService) {
+        this.ticketService = ticketService;
+    }
+
+    @GetMapping("/{ticketId}")
+    public ResponseEntity<Ticket> findTicket(@PathVariable String ticketId) {
+        return ResponseEntity.of(ticketService.findByTicketId(ticketId.trim().toUpperCase()));
+    }
+
+    @GetMapping("/{ticketId}/status")
+    public ResponseEntity<String> findStatus(@PathVariable String ticketId) {
+        return ResponseEntity.of(ticketService.findStatus(ticketId.trim().toUpperCase()));
+    }
+}
@@ -0,0 +1,170 @@
+package com.documentAi.documentAi.domain;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * An email fetched from the mailbox and waiting to be, or already, answered. Once a row
+ * is stored the message is marked seen on the server; from then on this table, not the
+ * mailbox, is the source of work. {@code nextAttemptAt} delays retries after a failure.
+ * Rows of one conversation share a {@code threadKey}, the message key of its first email.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "ux_inbound_email_message_key", columnList = "messageKey", unique = true),
+        @Index(name = "ix_inbound_email_due", columnList = "status, nextAttemptAt"),
+        @Index(name = "ix_inbound_email_thread", columnList = "threadKey"),
+        @Index(name = "ix_inbound_email_sender_subject", columnList = "sender, normalizedSubject, receivedAt")
+})
+public class InboundEmail {
+    public static final String RECEIVED = "RECEIVED";
+    public static final String PROCESSED = "PROCESSED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    @Column(nullable = false)
+    private String messageKey;
+    private String fromAddress;
+    private String sender;
+    private String subject;
+    private String normalizedSubject;
+    private String threadKey;
+    @Lob
+    private String content;
+    @Enumerated(EnumType.STRING)
+    private EmailCategory category;
+    private String ticketId;
+    private String status;
+    private int attempts;
+    private Instant receivedAt;
+    private Instant nextAttemptAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public String getFromAddress() {
+        return fromAddress;
+    }
+
+    public void setFromAddress(String fromAddress) {
+        this.fromAddress = fromAddress;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public void setSender(String sender) {
+        this.sender = sender;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getNormalizedSubject() {
+        return normalizedSubject;
+    }
+
+    public void setNormalizedSubject(String normalizedSubject) {
+        this.normalizedSubject = normalizedSubject;
+    }
+
+    public String getThreadKey() {
+        return threadKey;
+    }
+
+    public void setThreadKey(String threadKey) {
+        this.threadKey = threadKey;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public EmailCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(EmailCategory category) {
+        this.category = category;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(Instant receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public InboundEmail() {
+        super();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.documentAi.documentAi.domain;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sync position of one node in one IMAP folder, named {@code folder@node}. Every message
+ * up to {@code lastUid} has been stored in the inbound queue, by this node or another.
+ * UIDs are only meaningful for the {@code uidValidity} they were read under. Messages
+ * that failed, or were deferred by the cycle budget, are tracked in {@code retries} with
+ * their failed attempt count.
+ */
+@Entity
+public class MailboxCheckpoint {
+    @Id
+    private String name;
+    private long uidValidity;
+    private long lastUid;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "mailbox_retry", joinColumns = @JoinColumn(name = "checkpoint"))
+    @MapKeyColumn(name = "uid")
+    @Column(name = "attempts")
+    private Map<Long, Integer> retries = new HashMap<>();
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getUidValidity() {
+        return uidValidity;
+    }
+
+    public void setUidValidity(long uidValidity) {
+        this.uidValidity = uidValidity;
+    }
+
+    public long getLastUid() {
+        return lastUid;
+    }
+
+    public void setLastUid(long lastUid) {
+        this.lastUid = lastUid;
+    }
+
+    public Map<Long, Integer> getRetries() {
+        return retries;
+    }
+
+    public void setRetries(Map<Long, Integer> retries) {
+        this.retries = retries;
+    }
+
+    public MailboxCheckpoint(String name, long uidValidity, long lastUid) {
+        this.name = name;
+        this.uidValidity = uidValidity;
+        this.lastUid = lastUid;
+    }
+
+    public MailboxCheckpoint() {
+        super();
+    }
+
+}
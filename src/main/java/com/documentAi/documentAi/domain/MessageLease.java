@@ -0,0 +1,48 @@
+package com.documentAi.documentAi.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import java.time.Instant;
+
+/**
+ * Claim of one node on one inbound message. Only the owner processes the message; once
+ * {@code expiresAt} has passed, for example because the owner crashed, any node may take
+ * the lease over.
+ */
+@Entity
+public class MessageLease {
+    @Id
+    private String messageKey;
+    private String owner;
+    private Instant expiresAt;
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public MessageLease() {
+        super();
+    }
+
+}
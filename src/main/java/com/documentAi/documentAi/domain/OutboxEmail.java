@@ -0,0 +1,128 @@
+package com.documentAi.documentAi.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * A generated reply, written in the same transaction as its {@link Ticket} and drained
+ * to SMTP separately, so a failed send never costs a second generation.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "ux_outbox_email_message_key", columnList = "messageKey", unique = true),
+        @Index(name = "ix_outbox_email_due", columnList = "status, nextAttemptAt")
+})
+public class OutboxEmail {
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+    /** Interrupted during the SMTP handoff; may or may not have gone out, held for an operator. */
+    public static final String UNCERTAIN = "UNCERTAIN";
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    @Column(nullable = false)
+    private String messageKey;
+    private String ticketId;
+    private String toAddress;
+    private String subject;
+    @Lob
+    private String body;
+    private String status;
+    private int attempts;
+    private Instant createdAt;
+    private Instant nextAttemptAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public String getToAddress() {
+        return toAddress;
+    }
+
+    public void setToAddress(String toAddress) {
+        this.toAddress = toAddress;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public OutboxEmail() {
+        super();
+    }
+
+}
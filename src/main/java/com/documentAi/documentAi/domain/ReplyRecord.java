@@ -0,0 +1,60 @@
+package com.documentAi.documentAi.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import java.time.Instant;
+
+/**
+ * Idempotency ledger entry: the reply to {@code messageKey} is being sent ({@code PENDING})
+ * or has been sent ({@code SENT}). The primary key makes the PENDING insert the single
+ * point where two senders of the same reply are told apart.
+ */
+@Entity
+public class ReplyRecord {
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+
+    @Id
+    private String messageKey;
+    private String ticketId;
+    private String status;
+    private Instant updatedAt;
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public ReplyRecord() {
+        super();
+    }
+
+}
@@ -1,15 +1,23 @@
 package com.documentAi.documentAi.domain;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = @Index(name = "ux_ticket_ticket_id", columnList = "ticketId", unique = true))
 public class Ticket {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // allocationSize > 1 lets Hibernate's pooled optimizer assign ids for a whole JDBC batch from one sequence call
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_seq")
+    @SequenceGenerator(name = "ticket_seq", sequenceName = "ticket_seq", allocationSize = 50)
     private Long id;
+    @Column(nullable = false)
     private String ticketId;
     private String status;
 
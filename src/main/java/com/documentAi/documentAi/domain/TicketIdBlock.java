@@ -0,0 +1,41 @@
+package com.documentAi.documentAi.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * High-water mark of a ticket id sequence. Each node reserves a block of values by
+ * advancing {@code nextValue} and then hands them out from memory.
+ */
+@Entity
+public class TicketIdBlock {
+    @Id
+    private String name;
+    private long nextValue;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+
+    public TicketIdBlock(String name, long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    public TicketIdBlock() {
+        super();
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.documentAi.documentAi.llm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit tuned by additive increase, multiplicative decrease (AIMD). Each fast
+ * success raises the limit by {@code 1/limit}, roughly one slot per round of calls; a
+ * failure or a call slower than the latency target cuts it by a quarter, at most once
+ * per target interval so one slow burst does not collapse it to the minimum.
+ * Callers over the limit wait in line.
+ */
+final class AdaptiveLimit {
+
+    private static final double DECREASE_RATIO = 0.75;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long latencyTarget, TimeUnit unit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = unit.toNanos(latencyTarget);
+        this.lastDecrease = System.nanoTime() - latencyTargetNanos;
+    }
+
+    void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long latencyNanos, boolean success) {
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+            if (!success || latencyNanos > latencyTargetNanos) {
+                if (now - lastDecrease >= latencyTargetNanos) {
+                    limit = Math.max(minLimit, limit * DECREASE_RATIO);
+                    lastDecrease = now;
+                }
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
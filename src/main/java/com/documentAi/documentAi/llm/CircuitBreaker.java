@@ -0,0 +1,125 @@
+package com.documentAi.documentAi.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failures. While open, callers block
+ * instead of failing; once the open interval has passed a single probe call is let
+ * through, and its outcome either closes the breaker and releases everyone waiting or
+ * opens it for another interval.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean probing;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Returns once a call may proceed, waiting for as long as the breaker stays open.
+     *
+     * @return true if the call is the probe of a half-open breaker; a probe that never
+     * reaches the model server must be handed back through {@link #cancelProbe}
+     */
+    boolean acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                if (state == State.CLOSED) {
+                    return false;
+                }
+                if (state == State.OPEN) {
+                    long wait = openUntil - System.nanoTime();
+                    if (wait > 0) {
+                        stateChanged.awaitNanos(wait);
+                        continue;
+                    }
+                    state = State.HALF_OPEN;
+                    probing = false;
+                }
+                if (!probing) {
+                    probing = true;
+                    return true;
+                }
+                stateChanged.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the next waiting caller probe instead, without recording an outcome.
+     */
+    void cancelProbe() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probing) {
+                probing = false;
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                logger.info("LLM circuit breaker closed");
+                state = State.CLOSED;
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                logger.warn("LLM circuit breaker opened after {} consecutive failures", consecutiveFailures);
+                state = State.OPEN;
+                openUntil = System.nanoTime() + openNanos;
+                probing = false;
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.documentAi.documentAi.llm;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * {@link ChatModel} that sends every blocking call through the {@link LlmGateway}.
+ */
+public class GatedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final LlmGateway gateway;
+
+    public GatedChatModel(ChatModel delegate, LlmGateway gateway) {
+        this.delegate = delegate;
+        this.gateway = gateway;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return gateway.call(LlmGateway.Kind.CHAT, () -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return delegate.stream(prompt);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
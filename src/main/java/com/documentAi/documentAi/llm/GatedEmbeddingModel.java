@@ -0,0 +1,44 @@
+package com.documentAi.documentAi.llm;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} that sends every call through the {@link LlmGateway}. The
+ * {@code embed} convenience methods all end up in {@link #call} or {@link #embed(Document)}.
+ * {@link #dimensions} embeds a probe text on most models, so it goes through the gateway
+ * once and is remembered.
+ */
+public class GatedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final LlmGateway gateway;
+    private volatile int dimensions = -1;
+
+    public GatedEmbeddingModel(EmbeddingModel delegate, LlmGateway gateway) {
+        this.delegate = delegate;
+        this.gateway = gateway;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return gateway.call(LlmGateway.Kind.EMBEDDING, () -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return gateway.call(LlmGateway.Kind.EMBEDDING, () -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        int known = dimensions;
+        if (known < 0) {
+            known = gateway.call(LlmGateway.Kind.EMBEDDING, delegate::dimensions);
+            dimensions = known;
+        }
+        return known;
+    }
+}
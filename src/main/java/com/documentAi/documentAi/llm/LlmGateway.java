@@ -0,0 +1,178 @@
+package com.documentAi.documentAi.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single path for every call to the local model server. Each attempt
+ * <ol>
+ *     <li>waits while the circuit breaker is open, so an Ollama outage queues work instead of failing it,</li>
+ *     <li>takes a slot from the adaptive concurrency limit of its kind,</li>
+ *     <li>and runs under a per-call deadline.</li>
+ * </ol>
+ * Failed attempts are retried with jittered exponential backoff, except timeouts and
+ * rejected requests. A timed-out call keeps its slot until the server actually answers,
+ * so the limit reflects real server load, but counts once for the breaker, as a failure.
+ */
+@Component
+public class LlmGateway {
+
+    public enum Kind {
+        CHAT, EMBEDDING
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmGateway.class);
+
+    private final Map<Kind, AdaptiveLimit> limits = new EnumMap<>(Kind.class);
+    private final Map<Kind, Duration> timeouts = new EnumMap<>(Kind.class);
+    private final Map<Kind, Timer> timers = new EnumMap<>(Kind.class);
+    private final CircuitBreaker circuitBreaker;
+    private final RetryTemplate retryTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService callers;
+
+    public LlmGateway(MeterRegistry meterRegistry,
+                      @Value("${email.llm.limit.initial:2}") int initialLimit,
+                      @Value("${email.llm.limit.min:1}") int minLimit,
+                      @Value("${email.llm.limit.max:8}") int maxLimit,
+                      @Value("${email.llm.chat.latency-target:30s}") Duration chatLatencyTarget,
+                      @Value("${email.llm.chat.timeout:120s}") Duration chatTimeout,
+                      @Value("${email.llm.embedding.latency-target:2s}") Duration embeddingLatencyTarget,
+                      @Value("${email.llm.embedding.timeout:30s}") Duration embeddingTimeout,
+                      @Value("${email.llm.retry.max-attempts:3}") int maxAttempts,
+                      @Value("${email.llm.retry.initial-backoff:500ms}") Duration initialBackoff,
+                      @Value("${email.llm.retry.max-backoff:10s}") Duration maxBackoff,
+                      @Value("${email.llm.breaker.failure-threshold:5}") int failureThreshold,
+                      @Value("${email.llm.breaker.open-duration:30s}") Duration openDuration) {
+        this.meterRegistry = meterRegistry;
+        limits.put(Kind.CHAT, new AdaptiveLimit(initialLimit, minLimit, maxLimit, chatLatencyTarget.toMillis(), TimeUnit.MILLISECONDS));
+        limits.put(Kind.EMBEDDING, new AdaptiveLimit(initialLimit, minLimit, maxLimit, embeddingLatencyTarget.toMillis(), TimeUnit.MILLISECONDS));
+        timeouts.put(Kind.CHAT, chatTimeout);
+        timeouts.put(Kind.EMBEDDING, embeddingTimeout);
+        for (Kind kind : Kind.values()) {
+            String tag = kind.name().toLowerCase();
+            AdaptiveLimit limit = limits.get(kind);
+            meterRegistry.gauge("email.llm.limit", Tags.of("kind", tag), limit, AdaptiveLimit::limit);
+            meterRegistry.gauge("email.llm.in-flight", Tags.of("kind", tag), limit, AdaptiveLimit::inFlight);
+            timers.put(kind, meterRegistry.timer("email.llm.call", "kind", tag));
+        }
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        meterRegistry.gauge("email.llm.breaker.open", circuitBreaker, breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+
+        ExponentialRandomBackOffPolicy backOff = new ExponentialRandomBackOffPolicy();
+        backOff.setInitialInterval(initialBackoff.toMillis());
+        backOff.setMaxInterval(maxBackoff.toMillis());
+        backOff.setMultiplier(2);
+        this.retryTemplate = new RetryTemplate();
+        retryTemplate.setBackOffPolicy(backOff);
+        // An interrupted caller is shutting down, and a rejected request fails the same way again.
+        // A timed-out call is not retried either: its orphan still holds a slot, and another full
+        // timeout would keep the worker for several minutes past the caller's cycle budget.
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(maxAttempts, Map.of(
+                CancellationException.class, false,
+                CallTimeoutException.class, false,
+                NonTransientAiException.class, false,
+                HttpClientErrorException.class, false), true, true));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.callers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "llm-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    public <T> T call(Kind kind, Supplier<T> call) {
+        return retryTemplate.execute(context -> {
+            if (context.getRetryCount() > 0) {
+                logger.debug("Retrying {} call, attempt {}", kind, context.getRetryCount() + 1);
+                meterRegistry.counter("email.llm.retries", "kind", kind.name().toLowerCase()).increment();
+            }
+            return attempt(kind, call);
+        });
+    }
+
+    private <T> T attempt(Kind kind, Supplier<T> call) {
+        AdaptiveLimit limit = limits.get(kind);
+        boolean probe = false;
+        try {
+            probe = circuitBreaker.acquire();
+            limit.acquire();
+        } catch (InterruptedException e) {
+            if (probe) {
+                // Otherwise the breaker waits forever for this probe's outcome
+                circuitBreaker.cancelProbe();
+            }
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the model server");
+        }
+
+        long start = System.nanoTime();
+        // The breaker hears about each call once: from the timeout, or else from the call itself
+        AtomicBoolean outcomeRecorded = new AtomicBoolean();
+        CompletableFuture<T> result = CompletableFuture.supplyAsync(call, callers);
+        result.whenComplete((value, error) -> {
+            long latency = System.nanoTime() - start;
+            limit.release(latency, error == null);
+            timers.get(kind).record(latency, TimeUnit.NANOSECONDS);
+            if (outcomeRecorded.compareAndSet(false, true)) {
+                if (error == null) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+        });
+
+        Duration timeout = timeouts.get(kind);
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (outcomeRecorded.compareAndSet(false, true)) {
+                circuitBreaker.onFailure();
+            }
+            throw new CallTimeoutException(kind, timeout);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the model server");
+        }
+    }
+
+    public static class CallTimeoutException extends RuntimeException {
+        CallTimeoutException(Kind kind, Duration timeout) {
+            super(kind + " call did not finish within " + timeout);
+        }
+    }
+}
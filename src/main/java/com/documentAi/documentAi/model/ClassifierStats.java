@@ -0,0 +1,15 @@
+package com.documentAi.documentAi.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ClassifierStats {
+    private long localDecisions;
+    private long llmFallbacks;
+    private long invalidLlmAnswers;
+    private double hitRate;
+    private double confidenceThreshold;
+    private int trainingExamples;
+}
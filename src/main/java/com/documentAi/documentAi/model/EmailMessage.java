@@ -9,4 +9,6 @@ public class EmailMessage {
     private String subject;
     private String content;
     private EmailCategory category;
+    private String inReplyTo;
+    private String references;
 }
\ No newline at end of file
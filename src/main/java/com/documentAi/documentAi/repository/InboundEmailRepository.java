@@ -0,0 +1,35 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.InboundEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InboundEmailRepository extends JpaRepository<InboundEmail, Long> {
+
+    boolean existsByMessageKey(String messageKey);
+
+    long countByStatus(String status);
+
+    Optional<InboundEmail> findFirstByMessageKeyIn(Collection<String> messageKeys);
+
+    Optional<InboundEmail> findFirstBySenderAndNormalizedSubjectAndReceivedAtAfterOrderByReceivedAtDesc(
+            String sender, String normalizedSubject, Instant receivedAfter);
+
+    @Query("select e from InboundEmail e where e.threadKey = :threadKey and e.status = 'RECEIVED'"
+            + " and (e.nextAttemptAt <= :now or e.attempts = 0) order by e.receivedAt")
+    List<InboundEmail> findClaimable(@Param("threadKey") String threadKey, @Param("now") Instant now);
+
+    Optional<InboundEmail> findFirstByThreadKeyAndStatusAndTicketIdIsNotNullOrderByReceivedAtDesc(String threadKey, String status);
+
+    @Query("select e from InboundEmail e where e.status = 'RECEIVED' and e.nextAttemptAt <= :now order by e.receivedAt")
+    List<InboundEmail> findDue(@Param("now") Instant now, Pageable page);
+}
@@ -0,0 +1,9 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.MailboxCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MailboxCheckpointRepository extends JpaRepository<MailboxCheckpoint, String> {
+}
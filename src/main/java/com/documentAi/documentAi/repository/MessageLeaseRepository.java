@@ -0,0 +1,31 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.MessageLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface MessageLeaseRepository extends JpaRepository<MessageLease, String> {
+
+    /**
+     * Plain insert rather than save(), which would merge into a lease another node holds.
+     */
+    @Modifying
+    @Query("insert into MessageLease (messageKey, owner, expiresAt) values (:messageKey, :owner, :expiresAt)")
+    int insert(@Param("messageKey") String messageKey, @Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Query("update MessageLease l set l.owner = :owner, l.expiresAt = :expiresAt "
+            + "where l.messageKey = :messageKey and (l.owner = :owner or l.expiresAt < :now)")
+    int takeOver(@Param("messageKey") String messageKey, @Param("owner") String owner,
+                 @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from MessageLease l where l.messageKey = :messageKey and l.owner = :owner")
+    int release(@Param("messageKey") String messageKey, @Param("owner") String owner);
+}
@@ -0,0 +1,37 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    long countByStatus(String status);
+
+    @Query("select e from OutboxEmail e where e.status = 'PENDING' and e.nextAttemptAt <= :now order by e.id")
+    List<OutboxEmail> findDue(@Param("now") Instant now, Pageable page);
+
+    List<OutboxEmail> findByStatusOrderById(String status);
+
+    @Modifying
+    @Query("update OutboxEmail e set e.status = :status where e.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") String status);
+
+    @Modifying
+    @Query("update OutboxEmail e set e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.status = case when e.attempts + 1 >= :maxAttempts then 'FAILED' else 'PENDING' end where e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("nextAttemptAt") Instant nextAttemptAt, @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("update OutboxEmail e set e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now "
+            + "where e.id = :id and e.status in ('UNCERTAIN', 'FAILED')")
+    int requeue(@Param("id") Long id, @Param("now") Instant now);
+}
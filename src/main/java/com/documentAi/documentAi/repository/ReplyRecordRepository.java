@@ -0,0 +1,27 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.ReplyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface ReplyRecordRepository extends JpaRepository<ReplyRecord, String> {
+
+    @Modifying
+    @Query("insert into ReplyRecord (messageKey, ticketId, status, updatedAt) "
+            + "values (:messageKey, :ticketId, 'PENDING', :now)")
+    int insertPending(@Param("messageKey") String messageKey, @Param("ticketId") String ticketId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update ReplyRecord r set r.status = :status, r.updatedAt = :now where r.messageKey = :messageKey")
+    int updateStatus(@Param("messageKey") String messageKey, @Param("status") String status, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from ReplyRecord r where r.messageKey = :messageKey and r.status = 'PENDING'")
+    int deletePending(@Param("messageKey") String messageKey);
+}
@@ -0,0 +1,19 @@
+package com.documentAi.documentAi.repository;
+
+import com.documentAi.documentAi.domain.TicketIdBlock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TicketIdBlockRepository extends JpaRepository<TicketIdBlock, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from TicketIdBlock b where b.name = :name")
+    Optional<TicketIdBlock> findForUpdate(@Param("name") String name);
+}
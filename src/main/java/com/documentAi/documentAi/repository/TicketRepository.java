@@ -2,9 +2,19 @@ package com.documentAi.documentAi.repository;
 
 import com.documentAi.documentAi.domain.Ticket;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
 
+    Optional<Ticket> findByTicketId(String ticketId);
+
+    @Query("select t.ticketId from Ticket t where t.ticketId in :ticketIds")
+    List<String> findExistingTicketIds(@Param("ticketIds") Collection<String> ticketIds);
 }
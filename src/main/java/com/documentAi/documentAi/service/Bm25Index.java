@@ -0,0 +1,84 @@
+package com.documentAi.documentAi.service;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable BM25 inverted index over knowledge chunks, with postings kept per partition
+ * so a search only walks the postings of the partitions it asks for. Document
+ * frequencies and lengths are counted over all partitions, so scores from different
+ * partitions compare. Text is split into the same unigrams and bigrams the email
+ * classifier uses.
+ */
+final class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final List<Document> documents;
+    private final int[] lengths;
+    private final double averageLength;
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+    private final Map<String, Map<String, List<Posting>>> postings = new HashMap<>();
+
+    Bm25Index(List<Document> documents, Function<Document, String> partitionOf) {
+        this.documents = List.copyOf(documents);
+        this.lengths = new int[documents.size()];
+        long totalLength = 0;
+        for (int doc = 0; doc < documents.size(); doc++) {
+            Document document = documents.get(doc);
+            List<String> terms = EmailClassifier.terms(document.getContent());
+            lengths[doc] = terms.size();
+            totalLength += terms.size();
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            Map<String, List<Posting>> partition = postings.computeIfAbsent(partitionOf.apply(document), key -> new HashMap<>());
+            for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                partition.computeIfAbsent(term.getKey(), key -> new ArrayList<>()).add(new Posting(doc, term.getValue()));
+                documentFrequencies.merge(term.getKey(), 1, Integer::sum);
+            }
+        }
+        this.averageLength = documents.isEmpty() ? 0 : (double) totalLength / documents.size();
+    }
+
+    /**
+     * Best scoring documents of the given partitions; documents sharing no term with the
+     * query are not returned.
+     */
+    List<Hit> search(String query, Collection<String> partitions, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(EmailClassifier.terms(query))) {
+            Integer frequency = documentFrequencies.get(term);
+            if (frequency == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (documents.size() - frequency + 0.5) / (frequency + 0.5));
+            for (String partition : partitions) {
+                for (Posting posting : postings.getOrDefault(partition, Map.of()).getOrDefault(term, List.of())) {
+                    double norm = K1 * (1 - B + B * lengths[posting.doc()] / averageLength);
+                    scores.merge(posting.doc(), idf * posting.frequency() * (K1 + 1) / (posting.frequency() + norm), Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(entry -> new Hit(documents.get(entry.getKey()), entry.getValue()))
+                .toList();
+    }
+
+    record Hit(Document document, double score) {
+    }
+
+    private record Posting(int doc, int frequency) {
+    }
+}
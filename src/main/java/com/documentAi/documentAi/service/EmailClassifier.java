@@ -0,0 +1,193 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.ClassifierStats;
+import com.documentAi.documentAi.model.EmailCategory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process fast path for categorization: a multinomial naive Bayes model over
+ * unigrams and bigrams, trained at startup from labelled examples. It only answers
+ * when the posterior of the best category clears the threshold; ambiguous emails
+ * are left to the LLM.
+ */
+@Component
+@Slf4j
+public class EmailClassifier {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have", "i", "in",
+            "is", "it", "its", "me", "my", "of", "on", "or", "our", "please", "so", "that", "the", "this",
+            "to", "was", "we", "with", "you", "your", "hi", "hello", "dear", "regards", "thanks", "thank");
+
+    private final Map<EmailCategory, Map<String, Integer>> termCounts = new EnumMap<>(EmailCategory.class);
+    private final Map<EmailCategory, Integer> totalTerms = new EnumMap<>(EmailCategory.class);
+    private final Map<EmailCategory, Integer> documentCounts = new EnumMap<>(EmailCategory.class);
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private int totalDocuments;
+
+    private final double confidenceThreshold;
+    private final int minKnownTerms;
+
+    private final AtomicLong localDecisions = new AtomicLong();
+    private final AtomicLong llmFallbacks = new AtomicLong();
+    private final AtomicLong invalidLlmAnswers = new AtomicLong();
+
+    public EmailClassifier(@Value("classpath:classifier/labelled-emails.tsv") Resource trainingData,
+                           @Value("${email.classifier.confidence-threshold:0.9}") double confidenceThreshold,
+                           @Value("${email.classifier.min-known-terms:3}") int minKnownTerms) throws IOException {
+        this.confidenceThreshold = confidenceThreshold;
+        this.minKnownTerms = minKnownTerms;
+        train(trainingData);
+    }
+
+    /**
+     * Returns a category when the model is confident, otherwise empty and the caller asks the LLM.
+     */
+    public Optional<EmailCategory> classify(String content) {
+        Optional<Prediction> prediction = predict(content);
+        if (prediction.isEmpty() || prediction.get().confidence() < confidenceThreshold) {
+            llmFallbacks.incrementAndGet();
+            return Optional.empty();
+        }
+        localDecisions.incrementAndGet();
+        log.debug("Classified locally as {} with confidence {}", prediction.get().category(), prediction.get().confidence());
+        return Optional.of(prediction.get().category());
+    }
+
+    /**
+     * The best guess regardless of confidence, for decisions that only need to be roughly
+     * right, like scheduling; empty when the email has too few known terms. Not counted in
+     * the stats.
+     */
+    public Optional<EmailCategory> mostLikely(String content) {
+        return predict(content).map(Prediction::category);
+    }
+
+    /**
+     * The best guess if its posterior reaches {@code minConfidence}; not counted in the
+     * stats either. Used to sort knowledge chunks into category partitions.
+     */
+    public Optional<EmailCategory> mostLikely(String content, double minConfidence) {
+        return predict(content)
+                .filter(prediction -> prediction.confidence() >= minConfidence)
+                .map(Prediction::category);
+    }
+
+    private Optional<Prediction> predict(String content) {
+        List<String> terms = terms(content);
+        long known = terms.stream().filter(vocabulary::containsKey).count();
+        if (known < minKnownTerms) {
+            return Optional.empty();
+        }
+
+        Map<EmailCategory, Double> logScores = new EnumMap<>(EmailCategory.class);
+        double vocabularySize = vocabulary.size();
+        for (EmailCategory category : documentCounts.keySet()) {
+            Map<String, Integer> counts = termCounts.get(category);
+            double denominator = totalTerms.get(category) + vocabularySize;
+            double score = Math.log(documentCounts.get(category) / (double) totalDocuments);
+            for (String term : terms) {
+                if (vocabulary.containsKey(term)) {
+                    score += Math.log((counts.getOrDefault(term, 0) + 1) / denominator);
+                }
+            }
+            logScores.put(category, score);
+        }
+
+        // Softmax over the log scores gives the posterior of the best category
+        double max = logScores.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        double sum = 0;
+        EmailCategory best = null;
+        for (Map.Entry<EmailCategory, Double> entry : logScores.entrySet()) {
+            sum += Math.exp(entry.getValue() - max);
+            if (entry.getValue() == max) {
+                best = entry.getKey();
+            }
+        }
+        return best == null ? Optional.empty() : Optional.of(new Prediction(best, 1 / sum));
+    }
+
+    /**
+     * Records an LLM answer that did not name a category and was defaulted to GENERAL.
+     */
+    public void recordInvalidLlmAnswer() {
+        invalidLlmAnswers.incrementAndGet();
+    }
+
+    public ClassifierStats stats() {
+        long local = localDecisions.get();
+        long fallbacks = llmFallbacks.get();
+        long total = local + fallbacks;
+        return ClassifierStats.builder()
+                .localDecisions(local)
+                .llmFallbacks(fallbacks)
+                .invalidLlmAnswers(invalidLlmAnswers.get())
+                .hitRate(total == 0 ? 0 : (double) local / total)
+                .confidenceThreshold(confidenceThreshold)
+                .trainingExamples(totalDocuments)
+                .build();
+    }
+
+    private void train(Resource trainingData) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(trainingData.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\t", 2);
+                if (columns.length != 2) {
+                    continue;
+                }
+                learn(EmailCategory.valueOf(columns[0].trim()), columns[1]);
+            }
+        }
+        log.info("Email classifier trained on {} examples, {} terms", totalDocuments, vocabulary.size());
+    }
+
+    private void learn(EmailCategory category, String text) {
+        Map<String, Integer> counts = termCounts.computeIfAbsent(category, c -> new HashMap<>());
+        for (String term : terms(text)) {
+            counts.merge(term, 1, Integer::sum);
+            totalTerms.merge(category, 1, Integer::sum);
+            vocabulary.merge(term, 1, Integer::sum);
+        }
+        documentCounts.merge(category, 1, Integer::sum);
+        totalDocuments++;
+    }
+
+    static List<String> terms(String text) {
+        List<String> words = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                words.add(token);
+            }
+        }
+        List<String> terms = new ArrayList<>(words.size() * 2);
+        terms.addAll(words);
+        for (int i = 1; i < words.size(); i++) {
+            terms.add(words.get(i - 1) + " " + words.get(i));
+        }
+        return terms;
+    }
+
+    private record Prediction(EmailCategory category, double confidence) {
+    }
+}
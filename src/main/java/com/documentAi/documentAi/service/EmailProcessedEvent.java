@@ -0,0 +1,15 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Published by {@link EmailService} when a message leaves the pipeline, with the time from
+ * submission to completion and the time spent working in each stage. Whatever is left of
+ * {@code total} was spent queueing between stages.
+ */
+record EmailProcessedEvent(String ticketId, EmailCategory category, boolean success,
+                           Duration total, Map<String, Duration> stages) {
+}
@@ -1,74 +1,171 @@
 package com.documentAi.documentAi.service;
 
+import com.documentAi.documentAi.domain.InboundEmail;
+import com.documentAi.documentAi.domain.OutboxEmail;
+import com.documentAi.documentAi.domain.Ticket;
 import com.documentAi.documentAi.model.EmailCategory;
 import com.documentAi.documentAi.model.EmailMessage;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.*;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
-import jakarta.mail.search.FlagTerm;
 import lombok.extern.slf4j.Slf4j;
-import org.camunda.bpm.engine.HistoryService;
 import org.camunda.bpm.engine.RuntimeService;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.document.Document;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the mailbox in three decoupled steps:
+ * <ol>
+ *     <li>fetch: new messages are extracted into {@link InboundQueue} and marked seen,</li>
+ *     <li>process: due inbound rows are categorized and answered, and the ticket and the reply
+ *     are committed together before ticketProcess is started,</li>
+ *     <li>send: {@link OutboxSender} drains the committed replies to SMTP.</li>
+ * </ol>
+ * A crash or an SMTP failure after step 2 therefore never repeats the LLM work.
+ */
 @Service
 @Slf4j
 class EmailService {
-    private final JavaMailSender emailSender;
+    // Same wording QuestionAnswerAdvisor appended, so replies keep their grounding instructions
+    private static final String RAG_CONTEXT = """
+
+
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            %s
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
     private final ChatClient chatClient;
-    private final Properties mailProperties;
     private final RuntimeService runtimeService; // Camunda RuntimeService
-    private final HistoryService historyService;
-    @Value("${spring.mail.username}")
-    private String emailUsername;
-    @Value("${spring.mail.password}")
-    private String password;
-
-    private VectorStore vectorStore;
-    public EmailService(JavaMailSender emailSender, ChatClient.Builder chatClient, RuntimeService runtimeService,
-                        HistoryService historyService,
-                        VectorStore vectorStore
+    private final TicketIdAllocator ticketIdAllocator;
+    private final ImapConnector imapConnector;
+    private final EmailClassifier emailClassifier;
+    private final ResponseCache responseCache;
+    private final MimeContentExtractor mimeContentExtractor;
+    private final MailboxSync mailboxSync;
+    private final PromptCompactor promptCompactor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PipelineMetrics pipelineMetrics;
+    private final MessageLeases messageLeases;
+    private final ReplyLedger replyLedger;
+    private final InboundQueue inboundQueue;
+    private final OutboxSender outboxSender;
+    private final SlaScheduler slaScheduler;
+    private final Set<String> fetching = ConcurrentHashMap.newKeySet();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final HybridRetriever hybridRetriever;
+
+    private final PipelineStage extractStage;
+    private final PipelineStage categorizeStage;
+    private final PipelineStage generateStage;
+    private final PipelineStage ticketStage;
+
+    @Value("${email.pipeline.cycle-budget:100s}")
+    private Duration cycleBudget;
+    @Value("${email.pipeline.shutdown-grace:15s}")
+    private Duration shutdownGrace;
+    @Value("${email.inbound.batch-size:200}")
+    private int backlogBatchSize;
+
+    public EmailService(ChatClient.Builder chatClient, RuntimeService runtimeService,
+                        TicketIdAllocator ticketIdAllocator,
+                        HybridRetriever hybridRetriever,
+                        ImapConnector imapConnector,
+                        EmailClassifier emailClassifier,
+                        ResponseCache responseCache,
+                        MimeContentExtractor mimeContentExtractor,
+                        MailboxSync mailboxSync,
+                        PromptCompactor promptCompactor,
+                        ApplicationEventPublisher eventPublisher,
+                        PipelineMetrics pipelineMetrics,
+                        MessageLeases messageLeases,
+                        ReplyLedger replyLedger,
+                        InboundQueue inboundQueue,
+                        OutboxSender outboxSender,
+                        SlaScheduler slaScheduler,
+                        Environment environment
                        ) {
-        this.emailSender = emailSender;
         this.chatClient = chatClient.build();
-        this.mailProperties = new Properties();
         this.runtimeService = runtimeService;
-        this.historyService = historyService;
-        this.vectorStore = vectorStore;
+        this.ticketIdAllocator = ticketIdAllocator;
+        this.hybridRetriever = hybridRetriever;
+        this.imapConnector = imapConnector;
+        this.emailClassifier = emailClassifier;
+        this.responseCache = responseCache;
+        this.mimeContentExtractor = mimeContentExtractor;
+        this.mailboxSync = mailboxSync;
+        this.promptCompactor = promptCompactor;
+        this.eventPublisher = eventPublisher;
+        this.pipelineMetrics = pipelineMetrics;
+        this.messageLeases = messageLeases;
+        this.replyLedger = replyLedger;
+        this.inboundQueue = inboundQueue;
+        this.outboxSender = outboxSender;
+        this.slaScheduler = slaScheduler;
+        this.extractStage = PipelineStage.fromEnvironment(environment, "extract", 4, 100);
+        this.categorizeStage = PipelineStage.fromEnvironment(environment, "categorize", 2, 50);
+        this.generateStage = PipelineStage.fromEnvironment(environment, "generate", 2, 50);
+        this.ticketStage = PipelineStage.fromEnvironment(environment, "ticket", 2, 50);
+        pipelineMetrics.monitorBacklog(inFlight, List.of(extractStage, categorizeStage, generateStage, ticketStage));
     }
 
-    @Scheduled(cron = "0 */2 * ? * *")
+    @PreDestroy
+    void shutdownPipeline() {
+        for (PipelineStage stage : List.of(extractStage, categorizeStage, generateStage, ticketStage)) {
+            stage.close();
+        }
+    }
+
+    /**
+     * One poll: connects, processes the folder and disconnects. Driven by {@link MailboxPoller}.
+     */
     public void processEmails() {
         try {
-            Store store = connectToEmail();
-            Folder inbox = store.getFolder("Insurance");
-            inbox.open(Folder.READ_WRITE);
-            Flags seen = new Flags(Flags.Flag.SEEN);
-            FlagTerm unseenFlagTerm = new FlagTerm(seen, false);
-            jakarta.mail.Message[] messages = inbox.search(unseenFlagTerm);
-
-            for (jakarta.mail.Message message : messages) {
-                processMessage(message);
-            }
+            long start = System.nanoTime();
+            Store store = imapConnector.connect();
+            Folder inbox = imapConnector.openFolder(store);
+            pipelineMetrics.recordStage("imap.connect", System.nanoTime() - start);
+            processFolder(inbox);
 
             inbox.close(false);
             store.close();
@@ -77,67 +174,329 @@ class EmailService {
         }
     }
 
-    private Store connectToEmail() throws MessagingException {
-        Properties props = new Properties();
-        props.put("mail.store.protocol", "imaps");
-        props.put("mail.imaps.host", "imap.gmail.com");
-        props.put("mail.imaps.port", "993");
-
-        Session session = Session.getInstance(props);
-        Store store = session.getStore("imaps");
-        store.connect("imap.gmail.com", emailUsername, password);
-        return store;
+    /**
+     * Stores the messages {@link MailboxSync} reports as new for an already open folder,
+     * then works off the inbound backlog, all bounded by one cycle budget. Used by the
+     * cron poll and by {@link ImapIdleWatcher} on its long-lived folder.
+     */
+    void processFolder(Folder inbox) throws MessagingException, InterruptedException {
+        Instant deadline = Instant.now().plus(cycleBudget);
+        fetch(inbox, deadline);
+        processBacklog(deadline);
     }
 
-    private void processMessage(jakarta.mail.Message message) {
-        try {
-            EmailMessage emailMessage = extractEmailContent(message);
-            EmailCategory category = categorizeEmail(emailMessage.getContent());
-            emailMessage.setCategory(category);
+    /**
+     * Works off due inbound rows without touching the mailbox; {@link MailboxPoller} runs
+     * this on its own schedule so retries do not wait for new mail.
+     */
+    void processBacklog() throws InterruptedException {
+        processBacklog(Instant.now().plus(cycleBudget));
+    }
 
-            String response = generateResponse(emailMessage);
-            Map<String, String> parsedResponse = parseResponse(response);
+    private void fetch(Folder inbox, Instant deadline) throws MessagingException, InterruptedException {
+        long syncStart = System.nanoTime();
+        List<jakarta.mail.Message> messages = mailboxSync.fetchNew(inbox);
+        pipelineMetrics.recordStage("imap.sync", System.nanoTime() - syncStart);
+
+        // submit() blocks while the extract queue is full
+        List<CompletableFuture<Boolean>> stored = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            jakarta.mail.Message message = messages.get(i);
+            if (Instant.now().isAfter(deadline)) {
+                log.warn("Cycle budget exhausted, leaving {} messages for the next poll", messages.size() - i);
+                messages.subList(i, messages.size()).forEach(mailboxSync::deferred);
+                break;
+            }
+            // A message from an earlier sweep can still be being stored; don't store it twice
+            String key = messageKey(message);
+            if (!fetching.add(key)) {
+                continue;
+            }
+            mailboxSync.started(message);
+            stored.add(extractStage.submit(() -> pipelineMetrics.time("extract", () -> store(message, key)))
+                    .handle((done, e) -> {
+                        if (e != null) {
+                            log.error("Error storing message {}", key, e instanceof CompletionException ? e.getCause() : e);
+                        }
+                        fetching.remove(key);
+                        mailboxSync.completed(message, e == null);
+                        return e == null;
+                    }));
+        }
+        awaitPipeline(stored, deadline);
+    }
 
-            // Use parsed subject or fallback to the original subject
-            String subject = "Re: " + (parsedResponse.get("subject").isEmpty() ? emailMessage.getSubject() : parsedResponse.get("subject"));
-            String body = parsedResponse.get("body");
+    /**
+     * Extracts a message into the inbound table unless an earlier attempt or another node
+     * already did, then marks it seen; from here on the table owns it.
+     */
+    private boolean store(jakarta.mail.Message message, String key) throws Exception {
+        if (!inboundQueue.contains(key)) {
+            inboundQueue.receive(key, mimeContentExtractor.extract(message));
+        }
+        message.setFlag(Flags.Flag.SEEN, true);
+        return true;
+    }
 
-            sendResponse(emailMessage.getFrom(), subject, body);
-            message.setFlag(Flags.Flag.SEEN, true);
+    /**
+     * Submits due threads most urgent first. The local classifier's guess of the category
+     * is enough to rank a thread before the categorize stage; generation is ranked by the
+     * final category.
+     * <p>
+     * A thread is leased as a whole, and its unprocessed rows go through the pipeline as
+     * one unit, so a burst of follow-ups costs one set of LLM calls and gets one reply.
+     * Rows in a retry backoff wait for their own turn. A thread that already has a ticket
+     * keeps it.
+     */
+    private void processBacklog(Instant deadline) throws InterruptedException {
+        List<CompletableFuture<Boolean>> submitted = new ArrayList<>();
+        // The oldest due row stands for its thread
+        Map<String, DueThread> threads = new LinkedHashMap<>();
+        for (InboundEmail inbound : inboundQueue.due(backlogBatchSize)) {
+            threads.computeIfAbsent(inbound.getThreadKey(), threadKey -> new DueThread(threadKey,
+                    emailClassifier.mostLikely(inbound.getContent()).orElse(null), inbound.getReceivedAt()));
+        }
+        List<DueThread> due = new ArrayList<>(threads.values());
+        due.sort(Comparator.comparingLong(thread -> slaScheduler.rank(thread.provisionalCategory(), thread.receivedAt())));
 
-            log.info("Processed email: {} - Category: {}", emailMessage.getSubject(), category);
-        } catch (Exception e) {
-            log.error("Error processing message", e);
+        for (DueThread thread : due) {
+            if (Instant.now().isAfter(deadline)) {
+                break;
+            }
+            String key = "thread:" + thread.threadKey();
+            if (!inFlight.add(key)) {
+                continue;
+            }
+            // Another node is working on it
+            if (!messageLeases.claim(key)) {
+                inFlight.remove(key);
+                continue;
+            }
+            MessageContext context = claimThread(thread, deadline);
+            if (context == null) {
+                inFlight.remove(key);
+                messageLeases.release(key);
+                continue;
+            }
+            submitted.add(processMessage(context)
+                    .whenComplete((processed, e) -> {
+                        inFlight.remove(key);
+                        messageLeases.release(key);
+                    }));
+        }
+        awaitPipeline(submitted, deadline);
+        if (!submitted.isEmpty()) {
+            outboxSender.drain();
         }
     }
 
-    private EmailMessage extractEmailContent(jakarta.mail.Message message) throws Exception {
-        String content = "";
-        if (message.getContent() instanceof String) {
-            content = (String) message.getContent();
-        } else if (message.getContent() instanceof Multipart) {
-            content = extractMultipartContent((Multipart) message.getContent());
+    /**
+     * Identifies a message across sweeps and nodes: its Message-ID, or the folder UID
+     * when a sender left the header out.
+     */
+    private String messageKey(jakarta.mail.Message message) throws MessagingException {
+        if (message instanceof MimeMessage mimeMessage && mimeMessage.getMessageID() != null) {
+            return mimeMessage.getMessageID();
         }
+        Folder folder = message.getFolder();
+        if (folder instanceof UIDFolder uidFolder) {
+            return folder.getFullName() + "#" + uidFolder.getUIDValidity() + ":" + uidFolder.getUID(message);
+        }
+        return folder.getFullName() + "#" + message.getMessageNumber();
+    }
 
-        return EmailMessage.builder()
-                .from(InternetAddress.toString(message.getFrom()))
-                .subject(message.getSubject())
-                .content(content)
-                .build();
+    /**
+     * Waits for this cycle's messages. Past the deadline no message starts a new stage,
+     * so the grace period only has to cover calls that were already running.
+     */
+    private void awaitPipeline(List<CompletableFuture<Boolean>> inFlight, Instant deadline) throws InterruptedException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0]));
+        long waitMillis = Math.max(0, Duration.between(Instant.now(), deadline).plus(shutdownGrace).toMillis());
+        try {
+            all.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            long pending = inFlight.stream().filter(future -> !future.isDone()).count();
+            log.warn("Ending cycle with {} messages still in flight", pending);
+        } catch (ExecutionException e) {
+            // per-message failures are already logged
+        }
     }
 
-    private String extractMultipartContent(Multipart multipart) throws Exception {
-        StringBuilder content = new StringBuilder();
-        for (int i = 0; i < multipart.getCount(); i++) {
-            BodyPart bodyPart = multipart.getBodyPart(i);
-            if (bodyPart.getContent() instanceof String) {
-                content.append(bodyPart.getContent());
+    /**
+     * Loads the unprocessed rows of a leased thread, or null if none is left to answer.
+     * Rows the ledger shows as answered are only marked processed.
+     */
+    private MessageContext claimThread(DueThread thread, Instant deadline) {
+        List<InboundEmail> rows = new ArrayList<>();
+        for (InboundEmail inbound : inboundQueue.pendingInThread(thread.threadKey())) {
+            if (replyLedger.isAnswered(inbound.getMessageKey())) {
+                inboundQueue.complete(List.of(inbound), null, null);
+            } else {
+                rows.add(inbound);
             }
         }
+        if (rows.isEmpty()) {
+            return null;
+        }
+        MessageContext context = new MessageContext(rows, threadContent(rows), deadline);
+        context.setProvisionalCategory(thread.provisionalCategory());
+        inboundQueue.threadTicket(thread.threadKey()).ifPresent(ticketId -> {
+            context.setTicketId(ticketId);
+            context.setExistingTicket(true);
+        });
+        if (rows.size() > 1) {
+            log.info("Answering {} emails of thread {} together", rows.size(), thread.threadKey());
+            pipelineMetrics.countCoalesced(rows.size() - 1);
+        }
+        return context;
+    }
+
+    /**
+     * The emails of a thread oldest first. Each is cleaned on its own, since the quoted
+     * history of one would otherwise cut off the ones after it in the prompt.
+     */
+    private String threadContent(List<InboundEmail> rows) {
+        if (rows.size() == 1) {
+            return rows.get(0).getContent();
+        }
+        StringJoiner content = new StringJoiner("\n\n---\n\n");
+        for (InboundEmail inbound : rows) {
+            content.add("Subject: " + inbound.getSubject() + "\n\n"
+                    + promptCompactor.clean(Objects.toString(inbound.getContent(), "")));
+        }
         return content.toString();
     }
 
+    private CompletableFuture<Boolean> processMessage(MessageContext context) {
+        return submitRanked(categorizeStage, context, context.getProvisionalCategory(), () -> categorize(context))
+                .thenCompose(ctx -> {
+                    if (ctx.getTicketId() == null) {
+                        ctx.setTicketId(ticketIdAllocator.nextId());
+                    }
+                    return submitRanked(generateStage, ctx, ctx.getEmail().getCategory(), () -> generate(ctx));
+                })
+                .thenCompose(ctx -> ticketStage.submit(timed("ticket", ctx, () -> commit(ctx))))
+                .handle((ctx, e) -> {
+                    boolean success = e == null;
+                    if (success) {
+                        log.info("Processed email: {} - Category: {}", ctx.getEmail().getSubject(), ctx.getEmail().getCategory());
+                    } else {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (cause instanceof TimeoutException) {
+                            // Out of cycle budget, not a failure; the row stays due
+                            log.debug("Deferred {}: {}", context.getMessageKey(), cause.getMessage());
+                        } else {
+                            log.error("Error processing message {}", context.getMessageKey(), cause);
+                            inboundQueue.failed(context.getInbound());
+                        }
+                    }
+                    publishProcessed(context, success);
+                    return success;
+                });
+    }
+
+    /**
+     * Queues an LLM-bound step by the SLA deadline of the email and records how long it
+     * waited for a worker.
+     */
+    private <T> CompletableFuture<T> submitRanked(PipelineStage stage, MessageContext context, EmailCategory category,
+                                                  Callable<T> task) {
+        long queued = System.nanoTime();
+        Callable<T> timedTask = timed(stage.getName(), context, task);
+        return stage.submit(() -> {
+            slaScheduler.recordWait(stage.getName(), category, System.nanoTime() - queued);
+            return timedTask.call();
+        }, slaScheduler.rank(category, context.getReceivedAt()));
+    }
+
+    /**
+     * Records the time the task spends running, excluding its wait in the stage queue.
+     */
+    private <T> Callable<T> timed(String stage, MessageContext context, Callable<T> task) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                long nanos = System.nanoTime() - start;
+                context.recordStage(stage, nanos);
+                pipelineMetrics.recordStage(stage, nanos);
+            }
+        };
+    }
+
+    private void publishProcessed(MessageContext context, boolean success) {
+        Map<String, Duration> stages = new HashMap<>();
+        context.getStageNanos().forEach((stage, nanos) -> stages.put(stage, Duration.ofNanos(nanos)));
+        EmailMessage email = context.getEmail();
+        eventPublisher.publishEvent(new EmailProcessedEvent(context.getTicketId(),
+                email.getCategory(), success, context.elapsed(), stages));
+    }
+
+    private MessageContext categorize(MessageContext context) throws Exception {
+        context.checkDeadline("categorize");
+        EmailMessage email = context.getEmail();
+        email.setCategory(categorizeEmail(email.getContent()));
+        pipelineMetrics.countCategory(email.getCategory());
+        return context;
+    }
+
+    private MessageContext generate(MessageContext context) throws Exception {
+        context.checkDeadline("generate");
+        EmailMessage email = context.getEmail();
+        String response = generateResponse(email, context.getTicketId());
+        if (!ResponseParser.hasBody(response)) {
+            pipelineMetrics.countParseFailure("response");
+        }
+        Map<String, String> parsedResponse = ResponseParser.parse(response);
+
+        // Use parsed subject or fallback to the original subject
+        context.setReplySubject("Re: " + (parsedResponse.get("subject").isEmpty() ? email.getSubject() : parsedResponse.get("subject")));
+        context.setReplyBody(parsedResponse.get("body"));
+        return context;
+    }
+
+    /**
+     * Commits the ticket, the reply and the processed inbound rows together, then starts
+     * ticketProcess for a new ticket. No deadline check: dropping a generated reply here
+     * would waste it.
+     */
+    private MessageContext commit(MessageContext context) {
+        EmailMessage email = context.getEmail();
+        for (InboundEmail inbound : context.getInbound()) {
+            inbound.setCategory(email.getCategory());
+            inbound.setTicketId(context.getTicketId());
+        }
+
+        OutboxEmail reply = new OutboxEmail();
+        reply.setMessageKey(context.getMessageKey());
+        reply.setTicketId(context.getTicketId());
+        reply.setToAddress(email.getFrom());
+        reply.setSubject(context.getReplySubject());
+        reply.setBody(context.getReplyBody());
+        Ticket ticket = context.isExistingTicket() ? null : new Ticket(context.getTicketId(), "In Progress");
+        inboundQueue.complete(context.getInbound(), ticket, reply);
+        slaScheduler.recordReplied(email.getCategory(), context.getReceivedAt());
+        if (context.isExistingTicket()) {
+            return context;
+        }
+
+        try {
+            startTicketProcess(email, context.getTicketId());
+        } catch (RuntimeException e) {
+            // The ticket and the reply are committed; only the workflow is missing
+            log.error("Could not start ticket process for ticket {}", context.getTicketId(), e);
+        }
+        return context;
+    }
+
     private EmailCategory categorizeEmail(String content) {
+        content = promptCompactor.compact(content, PromptCompactor.PromptType.CATEGORIZE);
+        Optional<EmailCategory> local = emailClassifier.classify(content);
+        if (local.isPresent()) {
+            return local.get();
+        }
+
         // System message for categorization
         Message systemMessage = new SystemMessage("""
                 You are an email categorization assistant.
@@ -148,49 +507,79 @@ class EmailService {
         // User message with email content
         Message userMessage = new UserMessage(content);
 
-        try {
-            ChatResponse response = chatClient.prompt(new Prompt(List.of(systemMessage, userMessage)))
-                    .advisors()
-                    .call().chatResponse();
-            String category = response.getResult().getOutput().getContent().trim().toUpperCase();
-            return EmailCategory.valueOf(category);
-        } catch (IllegalArgumentException e) {
+        long start = System.nanoTime();
+        ChatResponse response = chatClient.prompt(new Prompt(List.of(systemMessage, userMessage)))
+                .advisors()
+                .call().chatResponse();
+        pipelineMetrics.recordStage("categorize.llm", System.nanoTime() - start);
+        String answer = response.getResult().getOutput().getContent().trim().toUpperCase();
+        return parseCategory(answer).orElseGet(() -> {
             log.warn("Invalid category returned by AI, defaulting to GENERAL");
+            emailClassifier.recordInvalidLlmAnswer();
+            pipelineMetrics.countParseFailure("category");
+            pipelineMetrics.countGeneralFallback();
             return EmailCategory.GENERAL;
-        }
+        });
     }
 
-    private String generateResponse(EmailMessage email) {
-
+    /**
+     * Accepts answers like "CLAIM.", "Category: CLAIM" or "policy update", not just the bare enum name.
+     */
+    private Optional<EmailCategory> parseCategory(String answer) {
+        String normalized = answer.replaceAll("[^A-Z_]+", " ").replace(' ', '_');
+        for (EmailCategory category : EmailCategory.values()) {
+            if (("_" + normalized + "_").contains("_" + category.name() + "_")) {
+                return Optional.of(category);
+            }
+        }
+        return Optional.empty();
+    }
 
+    /**
+     * Starts ticketProcess with the pre-allocated id. The first service task is asyncBefore,
+     * so this returns once the instance is persisted and the job executor runs the delegates.
+     */
+    private void startTicketProcess(EmailMessage email, String ticketId) {
         Map<String, Object> variables = new HashMap<>();
         variables.put("emailContent", email.getContent());
         variables.put("emailFrom", email.getFrom());
         variables.put("emailCategory", email.getCategory().name());
+        variables.put("ticketId", ticketId);
+
+        long start = System.nanoTime();
+        ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("ticketProcess", ticketId, variables);
+        pipelineMetrics.recordStage("camunda.start", System.nanoTime() - start);
+        log.info("Started ticket process {} for ticket ID: {}", processInstance.getId(), ticketId);
+    }
 
-        // Start the Camunda process with the variables passed in
-        ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("ticketProcess", variables);
-        System.out.println("processInstance " + processInstance.getId());
-        // Fetch ticketId and other variables after the process completes
-        String ticketId;
-        if (runtimeService.createProcessInstanceQuery().processInstanceId(processInstance.getId()).singleResult() != null) {
-            ticketId = (String) runtimeService.getVariable(processInstance.getId(), "ticketId");
-        } else {
-            // Fetch from history if the process has completed
-            ticketId = historyService.createHistoricVariableInstanceQuery()
-                    .processInstanceId(processInstance.getId())
-                    .variableName("ticketId")
-                    .singleResult()
-                    .getValue()
-                    .toString();
+    private String generateResponse(EmailMessage email, String ticketId) {
+        String content = promptCompactor.compact(email.getContent(), PromptCompactor.PromptType.GENERATE);
+        float[] embedding = null;
+        String template = null;
+        if (responseCache.isEnabled()) {
+            embedding = responseCache.embed(content);
+            template = responseCache.lookup(email.getCategory(), embedding).orElse(null);
         }
-        // Handle the generated response, e.g., return the ticketId and response
-        log.info("Generated ticket ID: {}", ticketId);
+        if (template == null) {
+            template = generateTemplate(email, content, embedding);
+            if (embedding != null && ResponseCache.isReusable(template, email)) {
+                responseCache.put(email.getCategory(), embedding, template);
+            }
+        }
+        return template.replace("{ticketId}", ticketId)
+                .replace("{senderName}", senderName(email.getFrom()));
+    }
+
+    /**
+     * Generates a reply that still contains the {ticketId} and {senderName} placeholders.
+     * The embedding from the response cache, if any, spares retrieval its own embedding call.
+     */
+    private String generateTemplate(EmailMessage email, String content, float[] embedding) {
         // System message for response generation
         Message systemMessage = new SystemMessage("""
                 You are a professional email assistant working on behalf of an insurance company, responding to customer emails.
                                 
-                The sender's name is: %s. \s
+                Address the sender only as {senderName}, written exactly like that; it is replaced with their name later. \s
                 The email concerns: %s. \s
                                 
                 The "Subject" should be concise and descriptive of the response, starting with a placeholder for the ticketId. The structure should be `{ticketId} - [Subject of the response]` ticketId is not policyNumber. 
@@ -203,73 +592,38 @@ class EmailService {
                 Please generate the response in **HTML format** for better readability in emails, using `<p>` for paragraphs and `<br>` for line breaks. Format your response as follows:
                 Subject: {ticketId} - [Subject Line]
                 Body:
-                <p>Dear [Sender's Name],</p> 
+                <p>Dear {senderName},</p> 
                 <p>[Paragraph 1 content with line breaks and lists, if any].</p>
                  <p>[Paragraph 2 content mentioning {ticketId}].</p> 
                  <p>Sincerely,<br>DataNinjas Insurance corp</p>
                 <p><i>This is an automated message; please do not reply directly to this email.</i></p>            
-                """.formatted(email.getFrom(), email.getCategory()));
+                """.formatted(email.getCategory()));
 
-        Message userMessage = new UserMessage(email.getContent());
+        long start = System.nanoTime();
+        List<Document> documents = hybridRetriever.retrieve(content, email.getCategory(), embedding);
+        pipelineMetrics.recordStage("rag.retrieval", System.nanoTime() - start);
+        Message userMessage = new UserMessage(content + RAG_CONTEXT.formatted(
+                documents.stream().map(Document::getContent).collect(Collectors.joining(System.lineSeparator()))));
 
+        start = System.nanoTime();
         ChatResponse response = chatClient.prompt(new Prompt(List.of(systemMessage, userMessage)))
-                .advisors(new QuestionAnswerAdvisor(vectorStore, SearchRequest.defaults().withTopK(5))).call().chatResponse();
-        String updatedResponse = response.getResult().getOutput().getContent().replace("{ticketId}", ticketId);
-
-        return updatedResponse;
+                .call().chatResponse();
+        pipelineMetrics.recordStage("generate.llm", System.nanoTime() - start);
+        return response.getResult().getOutput().getContent();
     }
 
-    private Map<String, String> parseResponse(String response) {
-        Map<String, String> responseParts = new HashMap<>();
-
-        // Split the response at "Body:" to separate the subject and body content
-        String[] parts = response.split("Body:\\s*", 2);
-
-        if (parts.length == 2) {
-            // Extract and clean subject
-            String subject = parts[0].replace("Subject:", "").trim();
-
-            // Extract body content
-            String body = parts[1].trim();
-
-            // Normalize line breaks (important for consistent rendering)
-            body = body.replaceAll("\\r\\n|\\r|\\n", System.lineSeparator()); // Normalize all to single line separator
-
-            // Optionally, convert double line breaks into paragraphs
-            body = body.replaceAll(System.lineSeparator() + "{2,}", "<p>") // Convert double line breaks into paragraphs
-                    .replaceAll(System.lineSeparator(), "<br>");        // Convert single line breaks to HTML <br>
-
-            responseParts.put("subject", subject);
-            responseParts.put("body", body); // Store formatted body
-        } else {
-            log.warn("Invalid response format. Defaulting to empty subject and body.");
-            responseParts.put("subject", "");
-            responseParts.put("body", response); // Treat entire response as body if format invalid
+    private String senderName(String from) {
+        try {
+            InternetAddress address = new InternetAddress(from);
+            if (address.getPersonal() != null && !address.getPersonal().isBlank()) {
+                return address.getPersonal();
+            }
+            return address.getAddress().split("@", 2)[0];
+        } catch (AddressException e) {
+            return from;
         }
-
-        return responseParts;
     }
 
-
-
-    private void sendResponse(String to, String subject, String responseText) throws jakarta.mail.MessagingException {
-        try {
-            MimeMessage mimeMessage = emailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, "UTF-8");
-            helper.setFrom(emailUsername);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            String htmlContent = responseText
-                    .replace("\n", "<br>") // Preserve line breaks
-                    .replace("\n\n", "<p>") // Convert double line breaks into paragraphs
-                    .replace("Sincerely,", "<p>Sincerely,</p>"); // Ensure proper paragraph separation
-
-            helper.setText(htmlContent, true);
-            helper.setText(responseText, true);
-            log.info("responseText is", responseText);
-            emailSender.send(mimeMessage);
-        } catch (Exception e) {
-            log.error("Error sending response", e);
-        }
+    private record DueThread(String threadKey, EmailCategory provisionalCategory, Instant receivedAt) {
     }
-}
\ No newline at end of file
+}
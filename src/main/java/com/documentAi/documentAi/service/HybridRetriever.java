@@ -0,0 +1,138 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import com.documentAi.documentAi.vectorstore.FileVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the knowledge chunks a reply is generated from, replacing a plain top-k vector
+ * search over the whole store. Chunks are partitioned by the category the email
+ * classifier sees in them; chunks it is unsure about form a shared partition that every
+ * search includes. A search
+ * <ol>
+ *     <li>scores the chunks of the email's category and the shared partition with BM25
+ *     and keeps the best {@code email.retrieval.candidates},</li>
+ *     <li>returns the top hits as they are when they outscore the next hit by
+ *     {@code email.retrieval.lexical-margin}, without embedding the email,</li>
+ *     <li>and otherwise reranks the candidates by vector similarity.</li>
+ * </ol>
+ * When too few chunks match lexically, it falls back to a vector search over the same
+ * partitions. GENERAL and uncategorized emails search every partition. The email's
+ * embedding is reused when the response cache already computed it.
+ */
+@Component
+@Slf4j
+class HybridRetriever {
+
+    private static final String SHARED = "SHARED";
+
+    private final FileVectorStore vectorStore;
+    private final EmailClassifier emailClassifier;
+    private final EmbeddingModel embeddingModel;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.retrieval.top-k:5}")
+    private int topK;
+    @Value("${email.retrieval.candidates:50}")
+    private int candidates;
+    @Value("${email.retrieval.lexical-margin:1.5}")
+    private double lexicalMargin;
+    @Value("${email.retrieval.chunk-confidence:0.6}")
+    private double chunkConfidence;
+
+    private volatile Partitions partitions;
+
+    HybridRetriever(FileVectorStore vectorStore, EmailClassifier emailClassifier, EmbeddingModel embeddingModel,
+                    MeterRegistry meterRegistry) {
+        this.vectorStore = vectorStore;
+        this.emailClassifier = emailClassifier;
+        this.embeddingModel = embeddingModel;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Indexes the chunks loaded from disk at startup, and again whenever ingestion changed them.
+     */
+    @EventListener({ApplicationReadyEvent.class, KnowledgeBaseReloadedEvent.class})
+    synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<Document> documents = vectorStore.documents();
+        Map<String, String> partitionById = new HashMap<>();
+        Map<String, List<String>> ids = new HashMap<>();
+        for (Document document : documents) {
+            String partition = emailClassifier.mostLikely(document.getContent(), chunkConfidence)
+                    .map(EmailCategory::name)
+                    .orElse(SHARED);
+            partitionById.put(document.getId(), partition);
+            ids.computeIfAbsent(partition, key -> new ArrayList<>()).add(document.getId());
+        }
+        partitions = new Partitions(new Bm25Index(documents, document -> partitionById.get(document.getId())), ids);
+        log.info("Indexed {} chunks for retrieval in {} partitions in {} ms", documents.size(), ids.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @param embedding the email's embedding if the caller already has one, otherwise null
+     */
+    List<Document> retrieve(String query, EmailCategory category, float[] embedding) {
+        if (partitions == null) {
+            rebuild();
+        }
+        Partitions current = partitions;
+        Collection<String> searched = current.partitionsFor(category);
+        List<Bm25Index.Hit> hits = current.lexical().search(query, searched, candidates);
+
+        if (hits.size() > topK && hits.get(topK - 1).score() >= lexicalMargin * hits.get(topK).score()) {
+            count("lexical");
+            return hits.stream().limit(topK).map(Bm25Index.Hit::document).toList();
+        }
+        float[] queryEmbedding = embedding != null ? embedding : embeddingModel.embed(query);
+        if (hits.size() <= topK) {
+            count("vector");
+            return vectorStore.similaritySearch(queryEmbedding, current.ids(searched), topK);
+        }
+        count("hybrid");
+        List<String> candidateIds = hits.stream().map(hit -> hit.document().getId()).toList();
+        return vectorStore.similaritySearch(queryEmbedding, candidateIds, topK);
+    }
+
+    private void count(String path) {
+        meterRegistry.counter("email.retrieval", "path", path).increment();
+    }
+
+    private record Partitions(Bm25Index lexical, Map<String, List<String>> idsByPartition) {
+
+        /**
+         * The category's own partition plus the shared one, or everything when the
+         * category is unknown, GENERAL or has no chunks.
+         */
+        Collection<String> partitionsFor(EmailCategory category) {
+            if (category == null || category == EmailCategory.GENERAL || !idsByPartition.containsKey(category.name())) {
+                return idsByPartition.keySet();
+            }
+            return Set.of(category.name(), SHARED);
+        }
+
+        List<String> ids(Collection<String> partitions) {
+            List<String> ids = new ArrayList<>();
+            for (String partition : partitions) {
+                ids.addAll(idsByPartition.getOrDefault(partition, List.of()));
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.documentAi.documentAi.service;
+
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Opens IMAP connections to the support mailbox. The {@link Session} is built once
+ * and shared by the cron poll and the IDLE watcher.
+ */
+@Component
+class ImapConnector {
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String folderName;
+    private final String username;
+    private final String password;
+
+    ImapConnector(@Value("${email.imap.protocol:imaps}") String protocol,
+                  @Value("${email.imap.host:imap.gmail.com}") String host,
+                  @Value("${email.imap.port:993}") int port,
+                  @Value("${email.imap.folder:Insurance}") String folderName,
+                  @Value("${email.imap.connection-timeout:10s}") Duration connectionTimeout,
+                  @Value("${email.imap.read-timeout:10m}") Duration readTimeout,
+                  @Value("${email.imap.fetch-size:16384}") int fetchSize,
+                  @Value("${spring.mail.username}") String username,
+                  @Value("${spring.mail.password}") String password) {
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.folderName = folderName;
+        this.username = username;
+        this.password = password;
+
+        Properties props = new Properties();
+        props.put("mail.store.protocol", protocol);
+        props.put("mail." + protocol + ".host", host);
+        props.put("mail." + protocol + ".port", String.valueOf(port));
+        props.put("mail." + protocol + ".connectiontimeout", String.valueOf(connectionTimeout.toMillis()));
+        // Must outlast the IDLE keepalive interval, otherwise an idle connection times out
+        props.put("mail." + protocol + ".timeout", String.valueOf(readTimeout.toMillis()));
+        // Bodies are fetched in fetch-size chunks, so a capped read never pulls a whole attachment
+        props.put("mail." + protocol + ".partialfetch", "true");
+        props.put("mail." + protocol + ".fetchsize", String.valueOf(fetchSize));
+        // Reading a body must not mark it SEEN; that happens once it is stored in the inbound table
+        props.put("mail." + protocol + ".peek", "true");
+        // Both the com.sun and the Angus providers are on the classpath; pin the one IDLE support is written against
+        props.put("mail." + protocol + ".class", "imaps".equals(protocol)
+                ? "org.eclipse.angus.mail.imap.IMAPSSLStore"
+                : "org.eclipse.angus.mail.imap.IMAPStore");
+        this.session = Session.getInstance(props);
+    }
+
+    Store connect() throws MessagingException {
+        Store store = session.getStore(protocol);
+        store.connect(host, port, username, password);
+        return store;
+    }
+
+    Folder openFolder(Store store) throws MessagingException {
+        Folder folder = store.getFolder(folderName);
+        folder.open(Folder.READ_WRITE);
+        return folder;
+    }
+
+    String getFolderName() {
+        return folderName;
+    }
+}
@@ -0,0 +1,178 @@
+package com.documentAi.documentAi.service;
+
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push mode: keeps one {@link Store} and folder open and waits in IMAP IDLE, so new
+ * mail is processed as soon as the server announces it. A periodic NOOP re-issues
+ * IDLE before the server drops it, and a lost connection is re-opened with
+ * exponential backoff. While disconnected, {@link MailboxPoller} falls back to cron polling.
+ */
+@Component
+@Slf4j
+class ImapIdleWatcher implements SmartLifecycle {
+
+    private final ImapConnector connector;
+    private final EmailService emailService;
+
+    @Value("${email.imap.idle.enabled:false}")
+    private boolean enabled;
+    @Value("${email.imap.idle.keepalive:5m}")
+    private Duration keepalive;
+    @Value("${email.imap.idle.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Store store;
+    private volatile IMAPFolder folder;
+    private Thread idleThread;
+    private ScheduledExecutorService keepaliveScheduler;
+
+    ImapIdleWatcher(ImapConnector connector, EmailService emailService) {
+        this.connector = connector;
+        this.emailService = emailService;
+    }
+
+    /**
+     * True while a folder is open and idling; the cron poll stands down meanwhile.
+     */
+    boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        keepaliveScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "imap-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        keepaliveScheduler.scheduleWithFixedDelay(this::sendKeepalive,
+                keepalive.toMillis(), keepalive.toMillis(), TimeUnit.MILLISECONDS);
+        idleThread = new Thread(this::watch, "imap-idle");
+        idleThread.setDaemon(true);
+        idleThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (keepaliveScheduler != null) {
+            keepaliveScheduler.shutdownNow();
+        }
+        // Closing the store from this thread aborts a pending IDLE
+        disconnect();
+        if (idleThread != null) {
+            idleThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch() {
+        Duration backoff = Duration.ofSeconds(1);
+        while (running) {
+            try {
+                store = connector.connect();
+                Folder opened = connector.openFolder(store);
+                if (!(opened instanceof IMAPFolder imapFolder)) {
+                    log.error("Folder {} does not support IDLE, push mode disabled", opened.getFullName());
+                    running = false;
+                    break;
+                }
+                folder = imapFolder;
+                connected = true;
+                backoff = Duration.ofSeconds(1);
+                log.info("IMAP IDLE connected to folder {}", connector.getFolderName());
+
+                // Sweep once on (re)connect to pick up anything that arrived while we were away
+                emailService.processFolder(imapFolder);
+                int knownCount = imapFolder.getMessageCount();
+                while (running && imapFolder.isOpen()) {
+                    imapFolder.idle(true);
+                    int count = imapFolder.getMessageCount();
+                    if (count != knownCount) {
+                        emailService.processFolder(imapFolder);
+                        knownCount = imapFolder.getMessageCount();
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("IMAP IDLE connection lost, reconnecting in {}", backoff, e);
+                }
+            } finally {
+                disconnect();
+            }
+            if (running) {
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    /**
+     * Any command on the folder ends the current IDLE; the watch loop then re-issues it.
+     */
+    private void sendKeepalive() {
+        IMAPFolder current = folder;
+        if (current == null || !current.isOpen()) {
+            return;
+        }
+        try {
+            current.doCommand(protocol -> {
+                protocol.noop();
+                return null;
+            });
+        } catch (MessagingException e) {
+            log.warn("IMAP keepalive failed, closing connection", e);
+            disconnect();
+        }
+    }
+
+    private void disconnect() {
+        connected = false;
+        IMAPFolder currentFolder = folder;
+        Store currentStore = store;
+        folder = null;
+        store = null;
+        try {
+            if (currentFolder != null && currentFolder.isOpen()) {
+                currentFolder.close(false);
+            }
+        } catch (Exception e) {
+            log.debug("Error closing IMAP folder", e);
+        }
+        try {
+            if (currentStore != null) {
+                currentStore.close();
+            }
+        } catch (Exception e) {
+            log.debug("Error closing IMAP store", e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.InboundEmail;
+import com.documentAi.documentAi.domain.OutboxEmail;
+import com.documentAi.documentAi.domain.Ticket;
+import com.documentAi.documentAi.model.EmailMessage;
+import com.documentAi.documentAi.repository.InboundEmailRepository;
+import com.documentAi.documentAi.repository.OutboxEmailRepository;
+import com.documentAi.documentAi.repository.TicketRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Durable hand-off between fetching and processing. The fetch side stores each email as
+ * an {@link InboundEmail} row; workers take due rows and finish them with
+ * {@link #complete}, which writes the ticket, the outbox reply and the new inbound state
+ * in one transaction. Failed rows are retried with exponential backoff and given up
+ * after {@code email.inbound.max-attempts}.
+ * <p>
+ * Each row is assigned to a thread when it is stored: a reply joins the thread of any
+ * stored email it references through In-Reply-To or References, and a new email from the
+ * same sender with the same subject joins that sender's thread within
+ * {@code email.thread.window}. Rows only become due {@code email.thread.settle} after
+ * receipt, so a quick burst of follow-ups is picked up together.
+ */
+@Component
+@Slf4j
+class InboundQueue {
+
+    private static final Pattern MESSAGE_ID = Pattern.compile("<[^<>\\s]+>");
+    private static final Pattern REPLY_PREFIX = Pattern.compile("(?i)^((re|fw|fwd|aw|wg|sv)(\\[\\d+])?\\s*:)\\s*");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final InboundEmailRepository inboundRepository;
+    private final OutboxEmailRepository outboxRepository;
+    private final TicketRepository ticketRepository;
+    private final TransactionTemplate transaction;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.inbound.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${email.inbound.retry-backoff:1m}")
+    private Duration retryBackoff;
+    @Value("${email.thread.window:30m}")
+    private Duration threadWindow;
+    @Value("${email.thread.settle:60s}")
+    private Duration settle;
+
+    InboundQueue(InboundEmailRepository inboundRepository, OutboxEmailRepository outboxRepository,
+                 TicketRepository ticketRepository, PlatformTransactionManager transactionManager,
+                 MeterRegistry meterRegistry) {
+        this.inboundRepository = inboundRepository;
+        this.outboxRepository = outboxRepository;
+        this.ticketRepository = ticketRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("email.inbound.pending", inboundRepository, repository -> repository.countByStatus(InboundEmail.RECEIVED));
+    }
+
+    boolean contains(String messageKey) {
+        return inboundRepository.existsByMessageKey(messageKey);
+    }
+
+    /**
+     * Stores a fetched email; false if it was stored before, by this or another node.
+     */
+    boolean receive(String messageKey, EmailMessage email) {
+        InboundEmail inbound = new InboundEmail();
+        inbound.setMessageKey(messageKey);
+        inbound.setFromAddress(email.getFrom());
+        inbound.setSender(senderAddress(email.getFrom()));
+        inbound.setSubject(email.getSubject());
+        inbound.setNormalizedSubject(normalizeSubject(email.getSubject()));
+        inbound.setContent(email.getContent());
+        inbound.setStatus(InboundEmail.RECEIVED);
+        inbound.setReceivedAt(Instant.now());
+        inbound.setNextAttemptAt(inbound.getReceivedAt().plus(settle));
+        inbound.setThreadKey(threadKey(inbound, email));
+        try {
+            transaction.executeWithoutResult(status -> inboundRepository.saveAndFlush(inbound));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    List<InboundEmail> due(int limit) {
+        return inboundRepository.findDue(Instant.now(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * The unprocessed rows of a thread to answer together, oldest first: the due ones,
+     * plus fresh follow-ups still settling. Rows waiting out a retry backoff are left
+     * out, so a failing email does not drag its siblings into its next attempt.
+     */
+    List<InboundEmail> pendingInThread(String threadKey) {
+        return inboundRepository.findClaimable(threadKey, Instant.now());
+    }
+
+    /**
+     * The ticket an earlier email of the thread was answered under, if any.
+     */
+    Optional<String> threadTicket(String threadKey) {
+        return inboundRepository
+                .findFirstByThreadKeyAndStatusAndTicketIdIsNotNullOrderByReceivedAtDesc(threadKey, InboundEmail.PROCESSED)
+                .map(InboundEmail::getTicketId);
+    }
+
+    /**
+     * Records the outcome of processed emails answered together. A null ticket means the
+     * thread's ticket already exists; a null reply means the emails needed no answer,
+     * for example because the reply ledger already has one.
+     */
+    void complete(List<InboundEmail> inbound, Ticket ticket, OutboxEmail reply) {
+        transaction.executeWithoutResult(status -> {
+            if (ticket != null && ticketRepository.findByTicketId(ticket.getTicketId()).isEmpty()) {
+                ticketRepository.save(ticket);
+            }
+            if (reply != null) {
+                reply.setStatus(OutboxEmail.PENDING);
+                reply.setCreatedAt(Instant.now());
+                reply.setNextAttemptAt(reply.getCreatedAt());
+                outboxRepository.save(reply);
+            }
+            for (InboundEmail email : inbound) {
+                email.setStatus(InboundEmail.PROCESSED);
+            }
+            inboundRepository.saveAll(inbound);
+        });
+    }
+
+    void failed(List<InboundEmail> inbound) {
+        inbound.forEach(this::failed);
+    }
+
+    private void failed(InboundEmail inbound) {
+        int attempts = inbound.getAttempts() + 1;
+        inbound.setAttempts(attempts);
+        if (attempts >= maxAttempts) {
+            log.error("Giving up on inbound email {} after {} attempts", inbound.getMessageKey(), attempts);
+            inbound.setStatus(InboundEmail.FAILED);
+            meterRegistry.counter("email.inbound.failed").increment();
+        } else {
+            // A failed complete() may have left the entity marked processed
+            inbound.setStatus(InboundEmail.RECEIVED);
+            inbound.setNextAttemptAt(Instant.now().plus(retryBackoff.multipliedBy(1L << (attempts - 1))));
+        }
+        transaction.executeWithoutResult(status -> inboundRepository.save(inbound));
+    }
+
+    private String threadKey(InboundEmail inbound, EmailMessage email) {
+        List<String> referenced = referencedIds(email);
+        if (!referenced.isEmpty()) {
+            Optional<InboundEmail> parent = inboundRepository.findFirstByMessageKeyIn(referenced);
+            if (parent.isPresent()) {
+                return parent.get().getThreadKey();
+            }
+        }
+        if (inbound.getSender() != null && !inbound.getNormalizedSubject().isEmpty()) {
+            Optional<InboundEmail> earlier = inboundRepository
+                    .findFirstBySenderAndNormalizedSubjectAndReceivedAtAfterOrderByReceivedAtDesc(
+                            inbound.getSender(), inbound.getNormalizedSubject(), inbound.getReceivedAt().minus(threadWindow));
+            if (earlier.isPresent()) {
+                return earlier.get().getThreadKey();
+            }
+        }
+        return inbound.getMessageKey();
+    }
+
+    static List<String> referencedIds(EmailMessage email) {
+        List<String> ids = new ArrayList<>();
+        for (String header : new String[]{email.getInReplyTo(), email.getReferences()}) {
+            if (header != null) {
+                Matcher matcher = MESSAGE_ID.matcher(header);
+                while (matcher.find()) {
+                    ids.add(matcher.group());
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Subject without reply and forward prefixes, case and extra whitespace.
+     */
+    static String normalizeSubject(String subject) {
+        if (subject == null) {
+            return "";
+        }
+        String normalized = WHITESPACE.matcher(subject.trim()).replaceAll(" ");
+        String previous;
+        do {
+            previous = normalized;
+            normalized = REPLY_PREFIX.matcher(normalized).replaceFirst("").trim();
+        } while (!normalized.equals(previous));
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+
+    private static String senderAddress(String from) {
+        if (from == null || from.isBlank()) {
+            return null;
+        }
+        try {
+            InternetAddress[] addresses = InternetAddress.parse(from, false);
+            return addresses.length == 0 ? null : addresses[0].getAddress().toLowerCase(Locale.ROOT);
+        } catch (AddressException e) {
+            return from.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
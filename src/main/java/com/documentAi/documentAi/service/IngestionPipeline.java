@@ -1,48 +1,324 @@
 package com.documentAi.documentAi.service;
 
-import jakarta.annotation.PostConstruct;
+import com.documentAi.documentAi.vectorstore.FileVectorStore;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.TextReader;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Loads the policy documents under {@code email.ingestion.locations} into the vector store.
+ * <p>
+ * Ingestion runs in the background once the application is ready, so mail is served
+ * while the corpus loads; {@link KnowledgeBaseHealthIndicator} reports its progress.
+ * Files are read and split in parallel, text with {@link TextReader} and PDFs page by
+ * page, and the vector store embeds new chunks in batches.
+ * <p>
+ * Every chunk carries a hash of its whole source file, and re-added chunks take the
+ * current hash, so a rescan skips a file only when all of its stored chunks carry its
+ * current hash, and reads, splits and embeds the rest. Chunks of edited or deleted files
+ * are removed. A file that cannot be read is logged and reported in {@link #details()};
+ * its stored chunks stay and the other files are ingested.
+ */
 @Component
 class IngestionPipeline {
 
     private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class);
 
-    private final VectorStore vectorStore;
+    static final String FILE_HASH_METADATA = "file_hash";
 
-    @Value("classpath:documents/insurance.txt")
-    Resource textFile1;
+    enum State {
+        PENDING, RUNNING, READY, FAILED
+    }
+
+    private final FileVectorStore vectorStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResourcePatternResolver resourceResolver;
+    private final ExecutorService readers;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingestion");
+        thread.setDaemon(true);
+        return thread;
+    });
 
+    @Value("${email.ingestion.locations:classpath*:documents/**/*.*}")
+    private String[] locations;
+    @Value("${email.ingestion.charset:UTF-8}")
+    private Charset charset;
 
-    IngestionPipeline(VectorStore vectorStore) {
+    private volatile State state = State.PENDING;
+    private volatile Instant lastRun;
+    private volatile Duration lastDuration;
+    private volatile int lastChangedFiles;
+    private volatile List<String> lastFailedFiles = List.of();
+    private volatile String lastError;
+
+    IngestionPipeline(FileVectorStore vectorStore, ApplicationEventPublisher eventPublisher,
+                      ResourcePatternResolver resourceResolver,
+                      @Value("${email.ingestion.parallelism:0}") int parallelism) {
         this.vectorStore = vectorStore;
+        this.eventPublisher = eventPublisher;
+        this.resourceResolver = resourceResolver;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.readers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ingestion-reader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        runner.execute(this::run);
+    }
+
+    /**
+     * Picks up edited, added and deleted files; unchanged files cost one hash each.
+     */
+    @Scheduled(cron = "${email.ingestion.rescan-cron:-}")
+    void rescan() {
+        runner.execute(this::run);
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+        readers.shutdownNow();
+    }
+
+    State getState() {
+        return state;
+    }
+
+    Map<String, Object> details() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("state", state);
+        details.put("chunks", vectorStore.size());
+        if (lastRun != null) {
+            details.put("lastRun", lastRun);
+            details.put("lastDuration", lastDuration);
+            details.put("changedFiles", lastChangedFiles);
+            if (!lastFailedFiles.isEmpty()) {
+                details.put("failedFiles", lastFailedFiles);
+            }
+        }
+        if (lastError != null) {
+            details.put("error", lastError);
+        }
+        return details;
     }
 
-    @PostConstruct
     void run() {
-        List<Document> documents = new ArrayList<>();
+        long start = System.nanoTime();
+        if (state != State.READY) {
+            state = State.RUNNING;
+        }
+        try {
+            Map<String, Resource> files = resolve();
+            Map<Object, Set<Object>> storedHashes = vectorStore.metadataValues(TextReader.SOURCE_METADATA, FILE_HASH_METADATA);
+            Map<String, CompletableFuture<List<Document>>> split = new LinkedHashMap<>();
+            List<String> failed = new ArrayList<>();
+            for (Map.Entry<String, Resource> file : files.entrySet()) {
+                String hash;
+                try {
+                    hash = fileHash(file.getValue());
+                } catch (UncheckedIOException e) {
+                    logger.error("Could not read {}, keeping its stored chunks", file.getKey(), e);
+                    failed.add(file.getKey());
+                    continue;
+                }
+                // Unchanged only if every stored chunk of the file has its current hash
+                if (!Set.of(hash).equals(storedHashes.get(file.getKey()))) {
+                    split.put(file.getKey(), CompletableFuture.supplyAsync(() -> readAndSplit(file.getValue(), hash), readers));
+                }
+            }
+            logger.info("Ingesting {} new or changed of {} documents", split.size(), files.size());
+
+            List<Document> chunks = new ArrayList<>();
+            int ingested = 0;
+            for (Map.Entry<String, CompletableFuture<List<Document>>> file : split.entrySet()) {
+                try {
+                    chunks.addAll(file.getValue().join());
+                    ingested++;
+                } catch (CompletionException e) {
+                    logger.error("Could not ingest {}, keeping its stored chunks", file.getKey(), e.getCause());
+                    failed.add(file.getKey());
+                }
+            }
+            int removed = removeStaleChunks(chunks, files.keySet());
+            vectorStore.add(chunks);
+            vectorStore.flush();
 
-        logger.info("Loading .md files as Documents");
-        var textReader1 = new TextReader(textFile1);
-        textReader1.getCustomMetadata().put("email", "seppa@evoketechnologies.com");
-        textReader1.setCharset(Charset.defaultCharset());
-        documents.addAll(textReader1.get());
+            lastChangedFiles = ingested;
+            lastFailedFiles = List.copyOf(failed);
+            lastError = null;
+            state = State.READY;
+            if (!chunks.isEmpty() || removed > 0) {
+                eventPublisher.publishEvent(new KnowledgeBaseReloadedEvent(vectorStore.size()));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Document ingestion failed", e);
+            lastError = e.getMessage();
+            if (state != State.READY) {
+                state = State.FAILED;
+            }
+        } finally {
+            lastRun = Instant.now();
+            lastDuration = Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+
+    private Map<String, Resource> resolve() {
+        Map<String, Resource> files = new LinkedHashMap<>();
+        for (String location : locations) {
+            try {
+                for (Resource resource : resourceResolver.getResources(location.trim())) {
+                    if (resource.isReadable() && isSupported(resource)) {
+                        files.putIfAbsent(source(resource), resource);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not resolve ingestion location {}", location, e);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isSupported(Resource resource) {
+        String name = String.valueOf(resource.getFilename()).toLowerCase(Locale.ROOT);
+        return name.endsWith(".pdf") || name.endsWith(".txt") || name.endsWith(".md");
+    }
+
+    private List<Document> readAndSplit(Resource resource, String fileHash) {
+        List<Document> documents;
+        if (String.valueOf(resource.getFilename()).toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+            documents = new PagePdfDocumentReader(resource).get();
+        } else {
+            TextReader reader = new TextReader(resource);
+            reader.setCharset(charset);
+            documents = reader.get();
+        }
+        String source = source(resource);
+        for (Document document : documents) {
+            document.getMetadata().put(TextReader.SOURCE_METADATA, source);
+            document.getMetadata().put(FILE_HASH_METADATA, fileHash);
+        }
+        List<Document> chunks = withContentIds(new TokenTextSplitter().split(documents));
+        logger.debug("Split {} into {} chunks", source, chunks.size());
+        return chunks;
+    }
 
+    /**
+     * Keys each chunk by a hash of its source and text, so an unchanged chunk maps to
+     * the embedding already stored and only new or edited chunks are embedded.
+     */
+    private List<Document> withContentIds(List<Document> chunks) {
+        return chunks.stream()
+                .map(chunk -> new Document(contentHash(chunk), chunk.getContent(), chunk.getMetadata()))
+                .toList();
+    }
+
+    /**
+     * Drops chunks of changed files that are no longer produced, and all chunks of files
+     * that are gone.
+     */
+    private int removeStaleChunks(List<Document> chunks, Set<String> existingSources) {
+        Set<String> current = new HashSet<>();
+        Set<Object> changedSources = new HashSet<>();
+        for (Document chunk : chunks) {
+            current.add(chunk.getId());
+            changedSources.add(chunk.getMetadata().get(TextReader.SOURCE_METADATA));
+        }
+        List<String> stale = new ArrayList<>();
+        for (Object source : vectorStore.metadataValues(TextReader.SOURCE_METADATA)) {
+            if (changedSources.contains(source) || !existingSources.contains(source)) {
+                vectorStore.findIds(TextReader.SOURCE_METADATA, source).stream()
+                        .filter(id -> !current.contains(id))
+                        .forEach(stale::add);
+            }
+        }
+        if (!stale.isEmpty()) {
+            logger.info("Removing {} chunks that no longer exist in the source documents", stale.size());
+            vectorStore.delete(stale);
+        }
+        return stale.size();
+    }
+
+    /**
+     * Stable name of a file; classpath entries are named by their path inside the jar,
+     * which does not change between deployments.
+     */
+    private static String source(Resource resource) {
+        try {
+            String uri = resource.getURI().toString();
+            int jarSeparator = uri.lastIndexOf("!/");
+            return jarSeparator >= 0 ? "classpath:" + uri.substring(jarSeparator + 2) : uri;
+        } catch (IOException e) {
+            return resource.getDescription();
+        }
+    }
+
+    private static String fileHash(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource.getDescription(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
-        logger.info("Creating and storing Embeddings from Documents");
-        vectorStore.add(new TokenTextSplitter().split(documents));
+    private static String contentHash(Document chunk) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(chunk.getMetadata().get(TextReader.SOURCE_METADATA)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(chunk.getContent().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.documentAi.documentAi.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the RAG knowledge base as {@code knowledgeBase}: out of service until the
+ * first ingestion has finished, down if it failed. A failed rescan keeps the previous
+ * corpus and stays up.
+ */
+@Component
+class KnowledgeBaseHealthIndicator implements HealthIndicator {
+
+    private final IngestionPipeline ingestionPipeline;
+
+    KnowledgeBaseHealthIndicator(IngestionPipeline ingestionPipeline) {
+        this.ingestionPipeline = ingestionPipeline;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (ingestionPipeline.getState()) {
+            case READY -> Health.up();
+            case FAILED -> Health.down();
+            case PENDING, RUNNING -> Health.outOfService();
+        };
+        return builder.withDetails(ingestionPipeline.details()).build();
+    }
+}
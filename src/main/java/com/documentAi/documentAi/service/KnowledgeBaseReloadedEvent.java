@@ -0,0 +1,7 @@
+package com.documentAi.documentAi.service;
+
+/**
+ * Published by {@link IngestionPipeline} after documents are (re)loaded into the vector store.
+ */
+record KnowledgeBaseReloadedEvent(int chunks) {
+}
@@ -0,0 +1,43 @@
+package com.documentAi.documentAi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cron fallback for {@link ImapIdleWatcher}: polls the mailbox on every tick
+ * unless an IDLE connection is currently up. Separately works off the inbound backlog.
+ */
+@Component
+@Slf4j
+class MailboxPoller {
+
+    private final EmailService emailService;
+    private final ImapIdleWatcher idleWatcher;
+
+    MailboxPoller(EmailService emailService, ImapIdleWatcher idleWatcher) {
+        this.emailService = emailService;
+        this.idleWatcher = idleWatcher;
+    }
+
+    @Scheduled(cron = "${email.poll.cron:0 */2 * ? * *}")
+    public void poll() {
+        if (idleWatcher.isConnected()) {
+            log.debug("IMAP IDLE is connected, skipping cron poll");
+            return;
+        }
+        emailService.processEmails();
+    }
+
+    /**
+     * Retries and leftovers in the inbound table are worked off even when no mail arrives.
+     */
+    @Scheduled(fixedDelayString = "${email.inbound.poll-interval:60s}")
+    public void processBacklog() {
+        try {
+            emailService.processBacklog();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
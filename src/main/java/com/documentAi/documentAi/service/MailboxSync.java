@@ -0,0 +1,203 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.MailboxCheckpoint;
+import com.documentAi.documentAi.repository.MailboxCheckpointRepository;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+import jakarta.mail.search.FlagTerm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Decides which messages a sweep processes, using a persisted UID checkpoint instead of
+ * a server-side search for unseen mail. Each sweep asks only for UIDs above the
+ * checkpoint plus the UIDs queued for retry, so its cost follows the amount of new mail
+ * rather than the folder size, and a message a human opened first is not skipped.
+ * <p>
+ * The checkpoint only moves past a message once the pipeline has finished with it, so
+ * a crash re-delivers at most the messages that were in flight. Failed messages are
+ * retried on later sweeps up to {@code max-attempts} times.
+ * <p>
+ * The first sweep of a folder, or the first after its UIDVALIDITY changed, has nothing
+ * to compare against: it runs one unseen search and queues the result for retry.
+ * <p>
+ * Every node keeps its own checkpoint and sees every message. Storing a message in the
+ * {@link InboundQueue} is idempotent, so whichever node stores it first wins; which node
+ * answers it is decided later, per thread, by the {@link MessageLeases} taken on the
+ * backlog.
+ */
+@Component
+@Slf4j
+class MailboxSync {
+
+    private final MailboxCheckpointRepository repository;
+    private final Map<String, FolderState> states = new HashMap<>();
+
+    @Value("${email.imap.sync.batch-size:200}")
+    private int batchSize;
+    @Value("${email.imap.sync.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${email.node-id:${HOSTNAME:local}}")
+    private String nodeId;
+
+    MailboxSync(MailboxCheckpointRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Messages to process in this sweep, oldest first, with envelope, flags and body
+     * structure prefetched in one round trip.
+     */
+    synchronized List<Message> fetchNew(Folder folder) throws MessagingException {
+        if (!(folder instanceof UIDFolder uidFolder)) {
+            Message[] unseen = folder.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+            folder.fetch(unseen, fetchProfile());
+            return Arrays.asList(unseen);
+        }
+        FolderState state = state(folder, uidFolder);
+        MailboxCheckpoint checkpoint = state.checkpoint;
+        List<Message> batch = new ArrayList<>();
+
+        if (!checkpoint.getRetries().isEmpty()) {
+            long[] retryUids = checkpoint.getRetries().keySet().stream()
+                    .mapToLong(Long::longValue).sorted().limit(batchSize).toArray();
+            Message[] retried = uidFolder.getMessagesByUID(retryUids);
+            for (int i = 0; i < retryUids.length; i++) {
+                if (retried[i] == null) {
+                    checkpoint.getRetries().remove(retryUids[i]); // expunged meanwhile
+                } else {
+                    state.uids.put(retried[i], retryUids[i]);
+                    batch.add(retried[i]);
+                }
+            }
+        }
+
+        long from = Math.max(checkpoint.getLastUid(), state.highest) + 1;
+        for (Message message : uidFolder.getMessagesByUID(from, UIDFolder.LASTUID)) {
+            if (batch.size() >= batchSize) {
+                break;
+            }
+            long uid = uidFolder.getUID(message);
+            // "from:*" always matches the newest message, even when its UID is below from
+            if (uid >= from) {
+                state.uids.put(message, uid);
+                state.highest = Math.max(state.highest, uid);
+                batch.add(message);
+            }
+        }
+
+        folder.fetch(batch.toArray(new Message[0]), fetchProfile());
+        return batch;
+    }
+
+    synchronized void started(Message message) {
+        state(message).ifPresent(state -> state.pending.add(state.uids.get(message)));
+    }
+
+    /**
+     * The sweep ran out of time before starting this message; the next sweep picks it up.
+     */
+    synchronized void deferred(Message message) {
+        state(message).ifPresent(state -> {
+            state.checkpoint.getRetries().putIfAbsent(state.uids.remove(message), 0);
+            advance(state);
+        });
+    }
+
+    synchronized void completed(Message message, boolean success) {
+        state(message).ifPresent(state -> {
+            long uid = state.uids.remove(message);
+            state.pending.remove(uid);
+            Map<Long, Integer> retries = state.checkpoint.getRetries();
+            if (success) {
+                retries.remove(uid);
+            } else if (retries.merge(uid, 1, Integer::sum) >= maxAttempts) {
+                log.error("Giving up on message UID {} in {} after {} attempts", uid, state.checkpoint.getName(), maxAttempts);
+                retries.remove(uid);
+            }
+            advance(state);
+        });
+    }
+
+    private void advance(FolderState state) {
+        MailboxCheckpoint checkpoint = state.checkpoint;
+        long safe = state.pending.isEmpty() ? state.highest : Math.min(state.highest, state.pending.first() - 1);
+        checkpoint.setLastUid(Math.max(checkpoint.getLastUid(), safe));
+        state.checkpoint = repository.save(checkpoint);
+    }
+
+    private Optional<FolderState> state(Message message) {
+        FolderState state = states.get(message.getFolder().getFullName());
+        return state != null && state.uids.containsKey(message) ? Optional.of(state) : Optional.empty();
+    }
+
+    private FolderState state(Folder folder, UIDFolder uidFolder) throws MessagingException {
+        long uidValidity = uidFolder.getUIDValidity();
+        FolderState state = states.get(folder.getFullName());
+        if (state != null && state.checkpoint.getUidValidity() == uidValidity) {
+            return state;
+        }
+        MailboxCheckpoint checkpoint = repository.findById(folder.getFullName() + "@" + nodeId)
+                .filter(stored -> stored.getUidValidity() == uidValidity)
+                .orElse(null);
+        if (checkpoint == null) {
+            checkpoint = bootstrap(folder, uidFolder, uidValidity);
+        }
+        state = new FolderState(checkpoint);
+        states.put(folder.getFullName(), state);
+        return state;
+    }
+
+    private MailboxCheckpoint bootstrap(Folder folder, UIDFolder uidFolder, long uidValidity) throws MessagingException {
+        Message[] unseen = folder.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+        FetchProfile uids = new FetchProfile();
+        uids.add(UIDFolder.FetchProfileItem.UID);
+        folder.fetch(unseen, uids);
+
+        long lastUid = uidFolder.getUIDNext() - 1;
+        if (lastUid < 0) {
+            int count = folder.getMessageCount();
+            lastUid = count == 0 ? 0 : uidFolder.getUID(folder.getMessage(count));
+        }
+        MailboxCheckpoint checkpoint = new MailboxCheckpoint(folder.getFullName() + "@" + nodeId, uidValidity, lastUid);
+        for (Message message : unseen) {
+            checkpoint.getRetries().put(uidFolder.getUID(message), 0);
+        }
+        log.info("No usable checkpoint for {}, starting at UID {} with {} unseen messages queued",
+                folder.getFullName(), lastUid, unseen.length);
+        return repository.save(checkpoint);
+    }
+
+    private static FetchProfile fetchProfile() {
+        FetchProfile profile = MimeContentExtractor.fetchProfile();
+        profile.add(FetchProfile.Item.FLAGS);
+        profile.add(UIDFolder.FetchProfileItem.UID);
+        return profile;
+    }
+
+    private static final class FolderState {
+        private MailboxCheckpoint checkpoint;
+        private long highest;
+        private final TreeSet<Long> pending = new TreeSet<>();
+        private final Map<Message, Long> uids = new IdentityHashMap<>();
+
+        private FolderState(MailboxCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+            this.highest = checkpoint.getLastUid();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.InboundEmail;
+import com.documentAi.documentAi.model.EmailCategory;
+import com.documentAi.documentAi.model.EmailMessage;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * State carried by the stored inbound emails of one thread as they move through the
+ * pipeline stages. A burst of follow-ups is answered as one email with the joined
+ * content; the reply goes to the newest message under the thread's ticket.
+ */
+@Getter
+@Setter
+class MessageContext {
+    private final List<InboundEmail> inbound;
+    private final Instant deadline;
+    private final EmailMessage email;
+    private EmailCategory provisionalCategory;
+    private String ticketId;
+    private boolean existingTicket;
+    private String replySubject;
+    private String replyBody;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stageNanos = new ConcurrentHashMap<>();
+
+    MessageContext(List<InboundEmail> inbound, String content, Instant deadline) {
+        this.inbound = List.copyOf(inbound);
+        this.deadline = deadline;
+        this.email = EmailMessage.builder()
+                .from(getPrimary().getFromAddress())
+                .subject(inbound.get(0).getSubject())
+                .content(content)
+                .build();
+    }
+
+    /**
+     * The newest email of the thread, which the reply answers.
+     */
+    InboundEmail getPrimary() {
+        return inbound.get(inbound.size() - 1);
+    }
+
+    String getMessageKey() {
+        return getPrimary().getMessageKey();
+    }
+
+    /**
+     * When the thread started waiting, which its SLA is measured from.
+     */
+    Instant getReceivedAt() {
+        return inbound.get(0).getReceivedAt();
+    }
+
+    /**
+     * Adds time spent working in a stage.
+     */
+    void recordStage(String stage, long nanos) {
+        stageNanos.merge(stage, nanos, Long::sum);
+    }
+
+    Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Stops a message before it starts a new stage once the cycle budget is spent;
+     * its inbound row stays due and is picked up again on the next cycle.
+     */
+    void checkDeadline(String stage) throws TimeoutException {
+        if (Instant.now().isAfter(deadline)) {
+            throw new TimeoutException("Cycle budget exhausted before stage " + stage);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.repository.MessageLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Splits the mailbox between nodes that share the database. Before a node starts a
+ * message it claims a lease on the message key; a node that finds a live lease of
+ * another node leaves the message alone. Leases are released when the pipeline is done
+ * with a message and expire after {@code email.lease.duration}, so a crashed node's
+ * messages are taken over by the others. The duration has to outlast a pipeline cycle.
+ */
+@Component
+@Slf4j
+class MessageLeases {
+
+    private final MessageLeaseRepository repository;
+    private final TransactionTemplate transaction;
+    private final String nodeId;
+    private final Duration duration;
+
+    MessageLeases(MessageLeaseRepository repository, PlatformTransactionManager transactionManager,
+                  @Value("${email.node-id:${HOSTNAME:local}}") String nodeId,
+                  @Value("${email.lease.duration:10m}") Duration duration) {
+        this.repository = repository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId;
+        this.duration = duration;
+        log.info("Claiming messages as node {}", nodeId);
+    }
+
+    /**
+     * True if this node now holds the lease, either new, renewed or taken over after expiry.
+     */
+    boolean claim(String messageKey) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(duration);
+        try {
+            Integer claimed = transaction.execute(status ->
+                    repository.takeOver(messageKey, nodeId, expiresAt, now) > 0
+                            ? 1
+                            : repository.insert(messageKey, nodeId, expiresAt));
+            return claimed != null && claimed > 0;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Message {} is leased by another node", messageKey);
+            return false;
+        }
+    }
+
+    void release(String messageKey) {
+        transaction.executeWithoutResult(status -> repository.release(messageKey, nodeId));
+    }
+}
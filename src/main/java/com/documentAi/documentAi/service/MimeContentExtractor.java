@@ -0,0 +1,147 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailMessage;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeUtility;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls the readable text out of a message in a single walk of its MIME tree.
+ * <p>
+ * The walk only looks at content types and dispositions, which IMAP serves from the
+ * prefetched BODYSTRUCTURE, so attachments are never downloaded. Of the inline parts,
+ * text/plain is preferred; text/html is converted to text only when a message has no
+ * plain part. Bodies are streamed and read up to {@code email.extract.max-bytes}, and
+ * with partial fetch enabled the server only sends the chunks that are actually read.
+ */
+@Component
+@Slf4j
+class MimeContentExtractor {
+
+    private static final Pattern SCRIPT_OR_STYLE = Pattern.compile("(?is)<(script|style)[^>]*>.*?</\\1>");
+    private static final Pattern BLOCK_END = Pattern.compile("(?i)<br\\s*/?>|</(p|div|tr|h[1-6])>|<li[^>]*>");
+    private static final Pattern TAG = Pattern.compile("<[^>]+>");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n[ \\t]*\\n(\\s*\\n)+");
+
+    private final int maxBytes;
+
+    MimeContentExtractor(@Value("${email.extract.max-bytes:65536}") int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * What to prefetch for a batch of messages so the walk needs no extra round trips.
+     * The envelope carries In-Reply-To but not References, which threading also needs.
+     */
+    static FetchProfile fetchProfile() {
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        profile.add(FetchProfile.Item.CONTENT_INFO);
+        profile.add("References");
+        return profile;
+    }
+
+    EmailMessage extract(Message message) throws MessagingException, IOException {
+        return EmailMessage.builder()
+                .from(InternetAddress.toString(message.getFrom()))
+                .subject(message.getSubject())
+                .content(extractText(message))
+                .inReplyTo(header(message, "In-Reply-To"))
+                .references(header(message, "References"))
+                .build();
+    }
+
+    private static String header(Message message, String name) throws MessagingException {
+        String[] values = message.getHeader(name);
+        return values == null ? null : String.join(" ", values);
+    }
+
+    String extractText(Part message) throws MessagingException, IOException {
+        List<Part> plain = new ArrayList<>();
+        List<Part> html = new ArrayList<>();
+        collectTextParts(message, plain, html);
+
+        boolean usePlain = !plain.isEmpty();
+        StringBuilder text = new StringBuilder();
+        int remaining = maxBytes;
+        for (Part part : usePlain ? plain : html) {
+            if (remaining <= 0) {
+                log.debug("Message text truncated at {} bytes", maxBytes);
+                break;
+            }
+            byte[] bytes = readCapped(part, remaining);
+            remaining -= bytes.length;
+            String decoded = new String(bytes, charset(part));
+            text.append(usePlain ? decoded : htmlToText(decoded));
+        }
+        return text.toString();
+    }
+
+    private void collectTextParts(Part part, List<Part> plain, List<Part> html) throws MessagingException, IOException {
+        if (isAttachment(part)) {
+            return;
+        }
+        if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                collectTextParts(multipart.getBodyPart(i), plain, html);
+            }
+        } else if (part.isMimeType("text/plain")) {
+            plain.add(part);
+        } else if (part.isMimeType("text/html")) {
+            html.add(part);
+        }
+        // Everything else (images, PDFs, forwarded message/rfc822 parts) carries no reply-relevant text
+    }
+
+    private static boolean isAttachment(Part part) throws MessagingException {
+        return Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition()) || part.getFileName() != null;
+    }
+
+    private static byte[] readCapped(Part part, int limit) throws MessagingException, IOException {
+        try (InputStream in = part.getInputStream()) {
+            return in.readNBytes(limit);
+        }
+    }
+
+    private static Charset charset(Part part) {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            if (charset != null && Charset.isSupported(MimeUtility.javaCharset(charset))) {
+                return Charset.forName(MimeUtility.javaCharset(charset));
+            }
+        } catch (MessagingException | IllegalArgumentException e) {
+            log.debug("Unreadable content type, decoding as UTF-8", e);
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    static String htmlToText(String html) {
+        String text = SCRIPT_OR_STYLE.matcher(html).replaceAll("");
+        text = BLOCK_END.matcher(text).replaceAll("\n");
+        text = TAG.matcher(text).replaceAll("");
+        text = text.replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&amp;", "&");
+        return BLANK_LINES.matcher(text).replaceAll("\n\n").trim();
+    }
+}
@@ -0,0 +1,202 @@
+package com.documentAi.documentAi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound SMTP queue. A small pool of sender threads each keeps one authenticated
+ * {@link Transport} open and drains queued replies in batches over it, so the TLS
+ * handshake and AUTH are paid once per connection rather than once per email.
+ * Failed sends are retried with backoff; the returned future reports the final outcome.
+ */
+@Component
+@Slf4j
+class OutboundMailQueue {
+
+    private final JavaMailSenderImpl mailSender;
+    private final PipelineMetrics pipelineMetrics;
+    private final BlockingQueue<OutboundEmail> queue;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    @Value("${email.smtp.pool-size:2}")
+    private int poolSize;
+    @Value("${email.smtp.batch-size:20}")
+    private int batchSize;
+    @Value("${email.smtp.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${email.smtp.retry-backoff:2s}")
+    private Duration retryBackoff;
+    @Value("${email.smtp.idle-timeout:60s}")
+    private Duration idleTimeout;
+
+    private final List<Thread> senders = new ArrayList<>();
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    OutboundMailQueue(JavaMailSenderImpl mailSender, MeterRegistry meterRegistry, PipelineMetrics pipelineMetrics,
+                      @Value("${email.smtp.queue-capacity:500}") int queueCapacity) {
+        this.mailSender = mailSender;
+        this.pipelineMetrics = pipelineMetrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sent = meterRegistry.counter("email.outbound.sent");
+        this.retried = meterRegistry.counter("email.outbound.retried");
+        this.failed = meterRegistry.counter("email.outbound.failed");
+        meterRegistry.gaugeCollectionSize("email.outbound.queued", Tags.empty(), queue);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 1; i <= poolSize; i++) {
+            Thread sender = new Thread(this::drain, "smtp-sender-" + i);
+            sender.setDaemon(true);
+            sender.start();
+            senders.add(sender);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        retryScheduler.shutdownNow();
+        senders.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Queues a reply, blocking while the queue is full. The future completes once the
+     * message is accepted by the SMTP server, or exceptionally after the last attempt fails.
+     */
+    CompletableFuture<Void> enqueue(MimeMessage message) throws MessagingException, InterruptedException {
+        message.saveChanges();
+        OutboundEmail email = new OutboundEmail(message);
+        queue.put(email);
+        return email.result;
+    }
+
+    private void drain() {
+        Transport transport = null;
+        List<OutboundEmail> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                OutboundEmail first = queue.poll(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Let the server-side connection go rather than hold it open idle
+                    transport = close(transport);
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (OutboundEmail email : batch) {
+                    transport = send(transport, email);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        close(transport);
+    }
+
+    private Transport send(Transport transport, OutboundEmail email) {
+        email.attempts++;
+        try {
+            if (transport == null || !transport.isConnected()) {
+                transport = close(transport);
+                transport = connect();
+            }
+            long start = System.nanoTime();
+            transport.sendMessage(email.message, email.message.getAllRecipients());
+            pipelineMetrics.recordStage("smtp.send", System.nanoTime() - start);
+            sent.increment();
+            email.result.complete(null);
+        } catch (SendFailedException e) {
+            // Rejected recipients will not succeed on retry
+            fail(email, e);
+        } catch (MessagingException e) {
+            // Most likely a dropped connection: reconnect on the next message
+            transport = close(transport);
+            retryOrFail(email, e);
+        }
+        return transport;
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport("smtp");
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return transport;
+    }
+
+    private void retryOrFail(OutboundEmail email, MessagingException e) {
+        if (email.attempts >= maxAttempts || !running) {
+            fail(email, e);
+            return;
+        }
+        retried.increment();
+        long base = retryBackoff.toMillis() << (email.attempts - 1);
+        long delay = base + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        log.warn("Send attempt {} of {} failed, retrying in {} ms", email.attempts, maxAttempts, delay, e);
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(email)) {
+                fail(email, e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void fail(OutboundEmail email, MessagingException e) {
+        failed.increment();
+        log.error("Giving up on outbound email after {} attempts", email.attempts, e);
+        email.result.completeExceptionally(e);
+    }
+
+    private Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error closing SMTP transport", e);
+            }
+        }
+        return null;
+    }
+
+    private static final class OutboundEmail {
+        private final MimeMessage message;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int attempts;
+
+        private OutboundEmail(MimeMessage message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.OutboxEmail;
+import com.documentAi.documentAi.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drains {@link OutboxEmail} rows into the {@link OutboundMailQueue}. Runs on its own
+ * schedule and whenever the pipeline has committed new replies. Each row is leased while
+ * it is being sent and reserved in the {@link ReplyLedger}, so with several nodes a reply
+ * still goes out at most once. A row whose sends keep failing is retried with backoff
+ * and marked FAILED after {@code email.outbox.max-attempts}.
+ * <p>
+ * A row whose ledger entry is still PENDING was being handed to SMTP when a node died,
+ * so it most likely never went out. It is held as UNCERTAIN and counted in
+ * {@code email.outbox.uncertain}; an operator checks with the customer or the mail log
+ * and requeues it with {@link #resend}, which FAILED rows accept as well.
+ */
+@Component
+@Slf4j
+public class OutboxSender {
+
+    private static final String LEASE_PREFIX = "outbox:";
+
+    private final OutboxEmailRepository repository;
+    private final OutboundMailQueue outboundMailQueue;
+    private final JavaMailSender emailSender;
+    private final MessageLeases messageLeases;
+    private final ReplyLedger replyLedger;
+    private final TransactionTemplate transaction;
+    private final MeterRegistry meterRegistry;
+    private final Set<Long> sending = ConcurrentHashMap.newKeySet();
+
+    @Value("${spring.mail.username}")
+    private String emailUsername;
+    @Value("${email.outbox.batch-size:100}")
+    private int batchSize;
+    @Value("${email.outbox.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${email.outbox.retry-backoff:5m}")
+    private Duration retryBackoff;
+
+    OutboxSender(OutboxEmailRepository repository, OutboundMailQueue outboundMailQueue, JavaMailSender emailSender,
+                 MessageLeases messageLeases, ReplyLedger replyLedger, PlatformTransactionManager transactionManager,
+                 MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.outboundMailQueue = outboundMailQueue;
+        this.emailSender = emailSender;
+        this.messageLeases = messageLeases;
+        this.replyLedger = replyLedger;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("email.outbox.pending", repository, outbox -> outbox.countByStatus(OutboxEmail.PENDING));
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:10s}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * Hands every due row to the SMTP queue; blocks only while that queue is full.
+     */
+    synchronized void drain() {
+        List<OutboxEmail> due = repository.findDue(Instant.now(), PageRequest.of(0, batchSize));
+        for (OutboxEmail reply : due) {
+            String lease = LEASE_PREFIX + reply.getId();
+            if (!sending.add(reply.getId())) {
+                continue;
+            }
+            if (!messageLeases.claim(lease)) {
+                sending.remove(reply.getId());
+                continue;
+            }
+            try {
+                send(reply).whenComplete((sent, e) -> {
+                    sending.remove(reply.getId());
+                    messageLeases.release(lease);
+                });
+            } catch (Exception e) {
+                log.error("Could not queue reply {} for sending", reply.getId(), e);
+                replyLedger.failed(reply.getMessageKey());
+                recordFailure(reply);
+                sending.remove(reply.getId());
+                messageLeases.release(lease);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> send(OutboxEmail reply) throws Exception {
+        if (!replyLedger.reserve(reply.getMessageKey(), reply.getTicketId())) {
+            // A node died while handing this reply to SMTP; it may have gone out already
+            log.error("Reply {} to {} was interrupted during an earlier send, holding it as {} until it is resent",
+                    reply.getId(), reply.getMessageKey(), OutboxEmail.UNCERTAIN);
+            updateStatus(reply, OutboxEmail.UNCERTAIN);
+            meterRegistry.counter("email.outbox.uncertain").increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        MimeMessage mimeMessage = emailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, "UTF-8");
+        helper.setFrom(emailUsername);
+        helper.setTo(reply.getToAddress());
+        helper.setSubject(reply.getSubject());
+        helper.setText(reply.getBody(), true);
+        // Lets the customer's answer to this reply thread back to the original email
+        if (reply.getMessageKey().startsWith("<")) {
+            mimeMessage.setHeader("In-Reply-To", reply.getMessageKey());
+            mimeMessage.setHeader("References", reply.getMessageKey());
+        }
+        log.debug("Queueing reply {} to {}", reply.getId(), reply.getToAddress());
+        return outboundMailQueue.enqueue(mimeMessage).whenComplete((sent, e) -> {
+            if (e == null) {
+                replyLedger.sent(reply.getMessageKey());
+                updateStatus(reply, OutboxEmail.SENT);
+            } else {
+                replyLedger.failed(reply.getMessageKey());
+                recordFailure(reply);
+            }
+        });
+    }
+
+    public List<OutboxEmail> uncertain() {
+        return repository.findByStatusOrderById(OutboxEmail.UNCERTAIN);
+    }
+
+    /**
+     * Queues an UNCERTAIN or FAILED reply for another send with fresh attempts, clearing
+     * its ledger entry. False if there is no such row in either state.
+     */
+    public boolean resend(long id) {
+        Optional<OutboxEmail> reply = repository.findById(id)
+                .filter(row -> OutboxEmail.UNCERTAIN.equals(row.getStatus()) || OutboxEmail.FAILED.equals(row.getStatus()));
+        if (reply.isEmpty()) {
+            return false;
+        }
+        replyLedger.failed(reply.get().getMessageKey());
+        boolean requeued = transaction.execute(tx -> repository.requeue(id, Instant.now())) > 0;
+        if (requeued) {
+            log.info("Reply {} to {} queued for resending", id, reply.get().getToAddress());
+        }
+        return requeued;
+    }
+
+    private void updateStatus(OutboxEmail reply, String status) {
+        transaction.executeWithoutResult(tx -> repository.updateStatus(reply.getId(), status));
+    }
+
+    private void recordFailure(OutboxEmail reply) {
+        long delay = retryBackoff.toMillis() << Math.min(reply.getAttempts(), 10);
+        transaction.executeWithoutResult(tx ->
+                repository.recordFailure(reply.getId(), Instant.now().plusMillis(delay), maxAttempts));
+        if (reply.getAttempts() + 1 >= maxAttempts) {
+            log.error("Giving up on reply {} to {} after {} attempts", reply.getId(), reply.getToAddress(), maxAttempts);
+            meterRegistry.counter("email.outbox.failed").increment();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the email pipeline, so a slow cycle can be attributed to Gmail,
+ * Ollama or the Camunda engine:
+ * <ul>
+ *     <li>{@code email.stage}: a timer tagged {@code stage}, both for the pipeline stages
+ *     (extract, categorize, ticket, generate) and for the external calls inside them
+ *     (imap.connect, imap.sync, categorize.llm, camunda.start, camunda.generate-ticket,
+ *     camunda.insert-ticket, rag.retrieval, generate.llm, smtp.send),</li>
+ *     <li>{@code email.category}: processed emails per category,</li>
+ *     <li>{@code email.category.fallback}: LLM answers that fell back to GENERAL,</li>
+ *     <li>{@code email.parse.failures}: unusable model output, tagged {@code type},</li>
+ *     <li>{@code email.inflight} and {@code email.pipeline.queued}: messages in flight and waiting per stage.</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordStage(String stage, long nanos) {
+        Timer.builder("email.stage").tag("stage", stage).register(meterRegistry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T time(String stage, Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            recordStage(stage, System.nanoTime() - start);
+        }
+    }
+
+    void countCategory(EmailCategory category) {
+        meterRegistry.counter("email.category", "category", category.name()).increment();
+    }
+
+    void countGeneralFallback() {
+        meterRegistry.counter("email.category.fallback").increment();
+    }
+
+    void countParseFailure(String type) {
+        meterRegistry.counter("email.parse.failures", "type", type).increment();
+    }
+
+    /**
+     * Emails answered together with an earlier one of their thread, so without LLM calls of their own.
+     */
+    void countCoalesced(int emails) {
+        meterRegistry.counter("email.thread.coalesced").increment(emails);
+    }
+
+    void monitorBacklog(Collection<?> inFlight, Collection<PipelineStage> stages) {
+        meterRegistry.gaugeCollectionSize("email.inflight", Tags.empty(), inFlight);
+        for (PipelineStage stage : stages) {
+            meterRegistry.gauge("email.pipeline.queued", Tags.of("stage", stage.getName()), stage, PipelineStage::getQueueSize);
+        }
+    }
+}
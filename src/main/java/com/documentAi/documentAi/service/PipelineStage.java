@@ -0,0 +1,123 @@
+package com.documentAi.documentAi.service;
+
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A bounded worker pool for one step of the email pipeline.
+ * When the queue is full, {@link #submit} blocks the caller, so a slow stage
+ * pushes back on the stage feeding it instead of buffering without limit.
+ * <p>
+ * Queued tasks run lowest rank first, ties in submission order. {@link #submit(Callable)}
+ * ranks by submission time, which keeps a stage FIFO unless callers pass their own rank.
+ * Those ranks are on a different scale, e.g. SLA deadlines in epoch milliseconds, so a
+ * stage takes either only plain or only ranked submissions; mixing them is rejected.
+ */
+class PipelineStage implements AutoCloseable {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReference<Boolean> callerRanked = new AtomicReference<>();
+
+    PipelineStage(String name, int concurrency, int queueCapacity) {
+        this.name = name;
+        this.capacity = new Semaphore(concurrency + queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "email-" + name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Reads {@code email.pipeline.stages.<name>.concurrency} and {@code .queue-capacity}.
+     */
+    static PipelineStage fromEnvironment(Environment env, String name, int defaultConcurrency, int defaultQueueCapacity) {
+        String prefix = "email.pipeline.stages." + name;
+        int concurrency = env.getProperty(prefix + ".concurrency", Integer.class, defaultConcurrency);
+        int queueCapacity = env.getProperty(prefix + ".queue-capacity", Integer.class, defaultQueueCapacity);
+        return new PipelineStage(name, concurrency, queueCapacity);
+    }
+
+    <T> CompletableFuture<T> submit(Callable<T> task) {
+        return enqueue(task, System.nanoTime(), false);
+    }
+
+    /**
+     * @param rank lower runs first; compared across all tasks queued in this stage
+     */
+    <T> CompletableFuture<T> submit(Callable<T> task, long rank) {
+        return enqueue(task, rank, true);
+    }
+
+    private <T> CompletableFuture<T> enqueue(Callable<T> task, long rank, boolean ranked) {
+        if (!callerRanked.compareAndSet(null, ranked) && callerRanked.get() != ranked) {
+            throw new IllegalStateException("Pipeline stage " + name + " mixes submission-time and caller ranks");
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queueing for stage " + name, e);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(new RankedTask(rank, sequence.getAndIncrement(), () -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    capacity.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            throw new RejectedExecutionException("Pipeline stage " + name + " is shut down", e);
+        }
+        return future;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private record RankedTask(long rank, long sequence, Runnable task) implements Runnable, Comparable<RankedTask> {
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(RankedTask other) {
+            int byRank = Long.compare(rank, other.rank);
+            return byRank != 0 ? byRank : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.documentAi.documentAi.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Shrinks an email body to the part the customer actually wrote before it goes into a
+ * prompt. HTML is turned into text; quoted reply chains, forwarded history, signatures
+ * and legal footers are cut; whitespace is collapsed; and the result is truncated to the
+ * token budget of the prompt type. Tokens are counted with CL100K_BASE, the encoding
+ * {@code TokenTextSplitter} uses for the knowledge documents.
+ */
+@Component
+@Slf4j
+class PromptCompactor {
+
+    enum PromptType {
+        CATEGORIZE, GENERATE
+    }
+
+    private static final Pattern HTML = Pattern.compile("(?i)<(html|body|p|div|br|table|span)\\b");
+    private static final Pattern HISTORY_START = Pattern.compile(
+            "(?i)^(-{2,}\\s*(original message|forwarded message)\\s*-{2,}"
+                    + "|begin forwarded message:"
+                    + "|on .{5,200} wrote:"
+                    + "|_{10,})$");
+    private static final Pattern OUTLOOK_FROM = Pattern.compile("(?i)^from:\\s.+");
+    private static final Pattern OUTLOOK_SENT = Pattern.compile("(?i)^(sent|date):\\s.+");
+    private static final Pattern FOOTER_START = Pattern.compile(
+            "(?i)^(--|sent from my \\w+.*|confidentiality notice.*|disclaimer:.*|this (e-?mail|message) and any attachments.*)$");
+    private static final Pattern SIGN_OFF = Pattern.compile(
+            "(?i)^((best|kind|warm)\\s+)?(regards|thanks|thank you|many thanks|sincerely|cheers)[,.!]?$");
+    private static final int SIGN_OFF_WINDOW = 8;
+    private static final int SIGNATURE_LINE_LENGTH = 60;
+    private static final Pattern SPACES = Pattern.compile("[ \\t\\x0B\\f\\u00A0]+");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n{3,}");
+
+    private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    private final MeterRegistry meterRegistry;
+    private final Map<PromptType, Integer> budgets;
+
+    PromptCompactor(MeterRegistry meterRegistry,
+                    @Value("${email.prompt.budget.categorize:512}") int categorizeBudget,
+                    @Value("${email.prompt.budget.generate:1500}") int generateBudget) {
+        this.meterRegistry = meterRegistry;
+        this.budgets = Map.of(PromptType.CATEGORIZE, categorizeBudget, PromptType.GENERATE, generateBudget);
+    }
+
+    String compact(String content, PromptType type) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+        String text = clean(content);
+        int budget = budgets.get(type);
+        int tokens = encoding.countTokens(text);
+        if (tokens > budget) {
+            text = truncate(text, budget);
+            tokens = encoding.countTokens(text);
+        }
+        int saved = Math.max(0, encoding.countTokens(content) - tokens);
+        meterRegistry.counter("email.prompt.tokens.saved", "prompt", type.name().toLowerCase()).increment(saved);
+        meterRegistry.summary("email.prompt.tokens", "prompt", type.name().toLowerCase()).record(tokens);
+        log.debug("Compacted {} prompt to {} tokens, saved {}", type, tokens, saved);
+        return text;
+    }
+
+    String clean(String content) {
+        String text = content.replace("\r\n", "\n").replace('\r', '\n');
+        if (HTML.matcher(text).find()) {
+            text = MimeContentExtractor.htmlToText(text);
+        }
+        String[] lines = text.split("\n", -1);
+        List<String> kept = new ArrayList<>(lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            String line = SPACES.matcher(lines[i]).replaceAll(" ").trim();
+            if (isHistoryStart(lines, i, line) || FOOTER_START.matcher(line).matches()) {
+                break;
+            }
+            if (!line.startsWith(">")) {
+                kept.add(line);
+            }
+        }
+        dropSignOff(kept);
+        String compacted = BLANK_LINES.matcher(String.join("\n", kept)).replaceAll("\n\n").trim();
+        // A bare forward has no text of its own; the forwarded mail is then the request
+        return compacted.isEmpty() ? SPACES.matcher(text).replaceAll(" ").trim() : compacted;
+    }
+
+    private static boolean isHistoryStart(String[] lines, int index, String line) {
+        if (HISTORY_START.matcher(line).matches()) {
+            return true;
+        }
+        // Outlook puts the quoted header on separate From:/Sent: lines
+        return OUTLOOK_FROM.matcher(line).matches()
+                && index + 1 < lines.length
+                && OUTLOOK_SENT.matcher(lines[index + 1].trim()).matches();
+    }
+
+    /**
+     * Cuts a closing like "Kind regards," and the name under it, if only short signature
+     * lines follow it near the end.
+     */
+    private static void dropSignOff(List<String> lines) {
+        for (int i = lines.size() - 1; i >= Math.max(0, lines.size() - SIGN_OFF_WINDOW); i--) {
+            String line = lines.get(i);
+            if (SIGN_OFF.matcher(line).matches()) {
+                lines.subList(i, lines.size()).clear();
+                return;
+            }
+            if (line.length() > SIGNATURE_LINE_LENGTH) {
+                return; // still in the body
+            }
+        }
+    }
+
+    /**
+     * Longest prefix within the budget, found by binary search over the character length.
+     */
+    private String truncate(String text, int budget) {
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (encoding.countTokens(text.substring(0, mid)) <= budget) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return text.substring(0, low);
+    }
+}
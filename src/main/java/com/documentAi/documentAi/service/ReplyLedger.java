@@ -0,0 +1,70 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.ReplyRecord;
+import com.documentAi.documentAi.repository.ReplyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+/**
+ * Records every reply so a message is answered at most once, across crashes and nodes.
+ * A sender first inserts a PENDING entry and only sends if that insert won; a successful
+ * send turns it into SENT and a failed one removes it so the message can be retried.
+ * <p>
+ * A PENDING entry that is never resolved means a node died during the SMTP handoff. The
+ * reply may or may not have gone out; it is not sent again automatically, and
+ * {@link OutboxSender} holds it for an operator to resend.
+ */
+@Component
+@Slf4j
+class ReplyLedger {
+
+    private final ReplyRecordRepository repository;
+    private final TransactionTemplate transaction;
+
+    ReplyLedger(ReplyRecordRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Checked before any work on a message, so an answered message costs no LLM calls.
+     */
+    boolean isAnswered(String messageKey) {
+        return repository.findById(messageKey)
+                .map(record -> {
+                    if (ReplyRecord.PENDING.equals(record.getStatus())) {
+                        log.warn("Reply to {} (ticket {}) was interrupted during sending, not sending it again",
+                                messageKey, record.getTicketId());
+                    }
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * True if the caller may send the reply; false if another attempt already has.
+     */
+    boolean reserve(String messageKey, String ticketId) {
+        try {
+            transaction.executeWithoutResult(status -> repository.insertPending(messageKey, ticketId, Instant.now()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    void sent(String messageKey) {
+        transaction.executeWithoutResult(status -> repository.updateStatus(messageKey, ReplyRecord.SENT, Instant.now()));
+    }
+
+    void failed(String messageKey) {
+        transaction.executeWithoutResult(status -> repository.deletePending(messageKey));
+    }
+}
@@ -0,0 +1,199 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import com.documentAi.documentAi.model.EmailMessage;
+import com.documentAi.documentAi.vectorstore.Vectors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Semantic cache of reply templates. A template is reused for a new email of the same
+ * category whose embedding is within the cosine similarity threshold of a cached one,
+ * skipping RAG retrieval and generation. Templates keep the {@code {ticketId}} and
+ * {@code {senderName}} placeholders, which are filled in per email. A reply is only
+ * cached when nothing in it looks copied from the email it answered, see
+ * {@link #isReusable}.
+ * Entries expire after the TTL, the least recently used entry is evicted when full,
+ * and everything is dropped when the knowledge documents are reloaded.
+ */
+@Component
+@Slf4j
+class ResponseCache {
+
+    private static final Pattern DIGIT = Pattern.compile("\\d");
+    private static final Pattern WORD = Pattern.compile("\\p{L}{3,}");
+    private static final Pattern CAPITALIZED = Pattern.compile("\\b\\p{Lu}\\p{L}{2,}");
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntries;
+    private final Duration ttl;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong nextKey = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    ResponseCache(EmbeddingModel embeddingModel, MeterRegistry meterRegistry,
+                  @Value("${email.response-cache.enabled:true}") boolean enabled,
+                  @Value("${email.response-cache.similarity-threshold:0.95}") double similarityThreshold,
+                  @Value("${email.response-cache.max-entries:500}") int maxEntries,
+                  @Value("${email.response-cache.ttl:24h}") Duration ttl) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.hits = meterRegistry.counter("email.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("email.response.cache", "result", "miss");
+        this.evictions = meterRegistry.counter("email.response.cache.evictions");
+        meterRegistry.gauge("email.response.cache.size", this, ResponseCache::size);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a reply generated for {@code email} is safe to send to another customer: it
+     * must keep both placeholders, contain no digits (policy numbers, amounts, dates) and
+     * no word of the sender's name or address or capitalized word of the email, such as
+     * a name or place. Rejecting a harmless reply only costs a cache miss.
+     */
+    static boolean isReusable(String template, EmailMessage email) {
+        if (!template.contains("{ticketId}") || !template.contains("{senderName}")) {
+            return false;
+        }
+        String text = template.replace("{ticketId}", " ").replace("{senderName}", " ");
+        if (DIGIT.matcher(text).find()) {
+            return false;
+        }
+        Set<String> words = new HashSet<>();
+        Matcher word = WORD.matcher(text);
+        while (word.find()) {
+            words.add(word.group().toLowerCase(Locale.ROOT));
+        }
+        return identifyingWords(email).stream().noneMatch(words::contains);
+    }
+
+    /**
+     * Words of the sender, plus capitalized words of the subject and content that do not
+     * start a sentence.
+     */
+    private static Set<String> identifyingWords(EmailMessage email) {
+        Set<String> identifying = new HashSet<>();
+        if (email.getFrom() != null) {
+            Matcher word = WORD.matcher(email.getFrom());
+            while (word.find()) {
+                identifying.add(word.group().toLowerCase(Locale.ROOT));
+            }
+        }
+        for (String text : new String[]{email.getSubject(), email.getContent()}) {
+            if (text == null) {
+                continue;
+            }
+            Matcher word = CAPITALIZED.matcher(text);
+            while (word.find()) {
+                if (!startsSentence(text, word.start())) {
+                    identifying.add(word.group().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return identifying;
+    }
+
+    private static boolean startsSentence(String text, int start) {
+        int i = start - 1;
+        while (i >= 0 && Character.isWhitespace(text.charAt(i))) {
+            i--;
+        }
+        return i < 0 || ".!?:;\"'>".indexOf(text.charAt(i)) >= 0;
+    }
+
+    float[] embed(String content) {
+        return Vectors.normalize(embeddingModel.embed(content));
+    }
+
+    Optional<String> lookup(EmailCategory category, float[] embedding) {
+        Instant now = Instant.now();
+        synchronized (entries) {
+            Long bestKey = null;
+            double bestSimilarity = similarityThreshold;
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Entry> candidate = iterator.next();
+                Entry entry = candidate.getValue();
+                if (entry.expiresAt.isBefore(now)) {
+                    iterator.remove();
+                    evictions.increment();
+                    continue;
+                }
+                if (entry.category != category || entry.embedding.length != embedding.length) {
+                    continue;
+                }
+                double similarity = Vectors.dot(entry.embedding, embedding);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    bestKey = candidate.getKey();
+                }
+            }
+            if (bestKey == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            log.debug("Response cache hit for {} with similarity {}", category, bestSimilarity);
+            // get() on the access-ordered map marks the entry as most recently used
+            return Optional.of(entries.get(bestKey).template);
+        }
+    }
+
+    void put(EmailCategory category, float[] embedding, String template) {
+        synchronized (entries) {
+            entries.put(nextKey.incrementAndGet(), new Entry(category, embedding, template, Instant.now().plus(ttl)));
+            Iterator<Long> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    @EventListener
+    void onKnowledgeBaseReloaded(KnowledgeBaseReloadedEvent event) {
+        synchronized (entries) {
+            entries.clear();
+        }
+        log.info("Response cache cleared after knowledge base reload");
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(EmailCategory category, float[] embedding, String template, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.documentAi.documentAi.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a generated reply into its "Subject:" and "Body:" sections and turns the body's
+ * line breaks into HTML. Runs on every reply, so the patterns are compiled once.
+ */
+@Slf4j
+final class ResponseParser {
+
+    private static final Pattern BODY_MARKER = Pattern.compile("Body:\\s*");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r\\n|\\r|\\n");
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile(System.lineSeparator() + "{2,}");
+    private static final Pattern SINGLE_BREAK = Pattern.compile(System.lineSeparator());
+
+    private ResponseParser() {
+    }
+
+    /**
+     * False when the reply has no "Body:" section and {@link #parse} falls back to using it whole.
+     */
+    static boolean hasBody(String response) {
+        return BODY_MARKER.matcher(response).find();
+    }
+
+    static Map<String, String> parse(String response) {
+        Map<String, String> responseParts = new HashMap<>();
+
+        // Split the response at "Body:" to separate the subject and body content
+        String[] parts = BODY_MARKER.split(response, 2);
+
+        if (parts.length == 2) {
+            // Extract and clean subject
+            String subject = parts[0].replace("Subject:", "").trim();
+
+            // Extract body content
+            String body = parts[1].trim();
+
+            // Normalize line breaks (important for consistent rendering)
+            body = LINE_BREAK.matcher(body).replaceAll(System.lineSeparator()); // Normalize all to single line separator
+
+            // Optionally, convert double line breaks into paragraphs
+            body = PARAGRAPH_BREAK.matcher(body).replaceAll("<p>"); // Convert double line breaks into paragraphs
+            body = SINGLE_BREAK.matcher(body).replaceAll("<br>");   // Convert single line breaks to HTML <br>
+
+            responseParts.put("subject", subject);
+            responseParts.put("body", body); // Store formatted body
+        } else {
+            log.warn("Invalid response format. Defaulting to empty subject and body.");
+            responseParts.put("subject", "");
+            responseParts.put("body", response); // Treat entire response as body if format invalid
+        }
+
+        return responseParts;
+    }
+}
@@ -0,0 +1,88 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Earliest-deadline-first ordering for the LLM stages. Each category has a reply SLA
+ * ({@code email.sla.<category>}, e.g. {@code email.sla.policy-update}); an email is due at
+ * its receipt time plus the SLA of its category, and the stage queues run the earliest
+ * due email first. A COMPLAINT therefore overtakes a burst of ENQUIRY mail, while an old
+ * ENQUIRY still overtakes a fresh COMPLAINT once it is due sooner.
+ * <p>
+ * No email starves: its deadline is fixed when it arrives, so later mail eventually ranks
+ * behind it. Every SLA, the default included, is capped at {@code email.sla.max-wait},
+ * an upper bound on the configured reply targets.
+ * <p>
+ * Reports {@code email.queue.wait} per stage and category, and
+ * {@code email.sla.response} and {@code email.sla.missed} per category.
+ */
+@Component
+@Slf4j
+class SlaScheduler {
+
+    private final Map<EmailCategory, Duration> slas = new EnumMap<>(EmailCategory.class);
+    private final Duration defaultSla;
+    private final MeterRegistry meterRegistry;
+
+    SlaScheduler(Environment environment, MeterRegistry meterRegistry,
+                 @Value("${email.sla.default:4h}") Duration defaultSla,
+                 @Value("${email.sla.max-wait:12h}") Duration maxWait) {
+        this.meterRegistry = meterRegistry;
+        this.defaultSla = defaultSla.compareTo(maxWait) > 0 ? maxWait : defaultSla;
+        for (EmailCategory category : EmailCategory.values()) {
+            String key = "email.sla." + category.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            Duration sla = environment.getProperty(key, Duration.class, defaultSla);
+            slas.put(category, sla.compareTo(maxWait) > 0 ? maxWait : sla);
+        }
+        log.info("Reply SLAs: {}", slas);
+    }
+
+    /**
+     * A null category, not known yet, gets {@code email.sla.default}.
+     */
+    Instant deadline(EmailCategory category, Instant receivedAt) {
+        return receivedAt.plus(category == null ? defaultSla : slas.get(category));
+    }
+
+    /**
+     * Stage rank of an email: its deadline in epoch milliseconds.
+     */
+    long rank(EmailCategory category, Instant receivedAt) {
+        return deadline(category, receivedAt).toEpochMilli();
+    }
+
+    void recordWait(String stage, EmailCategory category, long nanos) {
+        Timer.builder("email.queue.wait")
+                .tag("stage", stage)
+                .tag("category", category == null ? "UNKNOWN" : category.name())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called once the reply is committed to the outbox.
+     */
+    void recordReplied(EmailCategory category, Instant receivedAt) {
+        Instant now = Instant.now();
+        Timer.builder("email.sla.response")
+                .tag("category", category.name())
+                .register(meterRegistry)
+                .record(Duration.between(receivedAt, now));
+        if (now.isAfter(deadline(category, receivedAt))) {
+            meterRegistry.counter("email.sla.missed", "category", category.name()).increment();
+        }
+    }
+}
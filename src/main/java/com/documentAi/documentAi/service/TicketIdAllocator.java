@@ -0,0 +1,117 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.TicketIdBlock;
+import com.documentAi.documentAi.repository.TicketIdBlockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Hands out unique ticket ids without a database round trip per ticket. Values come from
+ * blocks reserved in the {@link TicketIdBlock} table, so ids never collide across restarts
+ * or nodes; within a block they are taken with a single atomic increment.
+ * <p>
+ * Ids are 8 characters of Crockford base32 (no I, L, O or U). The sequence value is
+ * scrambled by an odd multiplier, a bijection on 40 bits, so consecutive tickets do not
+ * look consecutive.
+ */
+@Service
+@Slf4j
+public class TicketIdAllocator {
+
+    private static final String SEQUENCE = "ticket";
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 8;
+    private static final long MASK = (1L << (5 * LENGTH)) - 1;
+    private static final long MULTIPLIER = 0x9E3779B97FL | 1;
+
+    private final LongUnaryOperator blockReserver;
+    private final int blockSize;
+    private volatile Block current = new Block(0, 0);
+
+    @Autowired
+    public TicketIdAllocator(TicketIdBlockRepository repository, PlatformTransactionManager transactionManager,
+                             @Value("${email.ticket-id.block-size:100}") int blockSize) {
+        this(size -> reserve(repository, transactionManager, size), blockSize);
+    }
+
+    TicketIdAllocator(LongUnaryOperator blockReserver, int blockSize) {
+        this.blockReserver = blockReserver;
+        this.blockSize = blockSize;
+    }
+
+    public String nextId() {
+        return format(nextValue());
+    }
+
+    long nextValue() {
+        while (true) {
+            Block block = current;
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return value;
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (current != exhausted) {
+            return; // another thread already reserved a new block
+        }
+        long start = blockReserver.applyAsLong(blockSize);
+        current = new Block(start, start + blockSize);
+        log.debug("Reserved ticket id block [{}, {})", start, start + blockSize);
+    }
+
+    static String format(long value) {
+        long scrambled = (value * MULTIPLIER) & MASK;
+        char[] id = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            id[i] = ALPHABET[(int) (scrambled & 31)];
+            scrambled >>>= 5;
+        }
+        return new String(id);
+    }
+
+    private static long reserve(TicketIdBlockRepository repository, PlatformTransactionManager transactionManager, int size) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return reserveIn(transaction, repository, size);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the sequence row first; it exists now
+            return reserveIn(transaction, repository, size);
+        }
+    }
+
+    private static long reserveIn(TransactionTemplate transaction, TicketIdBlockRepository repository, int size) {
+        Long start = transaction.execute(status -> {
+            TicketIdBlock block = repository.findForUpdate(SEQUENCE)
+                    .orElseGet(() -> new TicketIdBlock(SEQUENCE, 1));
+            long first = block.getNextValue();
+            block.setNextValue(first + size);
+            repository.saveAndFlush(block);
+            return first;
+        });
+        return start;
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.Ticket;
+import com.documentAi.documentAi.repository.TicketRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticket persistence and lookup.
+ * <p>
+ * Writes are group-committed: concurrent {@link #save} calls are collected for up to
+ * {@code flush-interval} and inserted as one JDBC batch in one transaction, and each
+ * caller's future completes once its row is committed. Saving a ticket id that already
+ * exists is a no-op, so a retried Camunda job does not fail on the unique index.
+ * This batching only serves the Camunda delegate: the email pipeline stores its ticket
+ * in the same transaction as the reply and the inbound rows, in {@link InboundQueue}.
+ * <p>
+ * Lookups by ticket id read through a bounded LRU cache that writes keep current.
+ */
+@Service
+@Slf4j
+public class TicketService {
+
+    private final TicketRepository ticketRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingTicket> pending = new LinkedBlockingQueue<>();
+    private final Map<String, Ticket> cache;
+
+    @Value("${email.tickets.batch-size:50}")
+    private int batchSize;
+    @Value("${email.tickets.flush-interval:20ms}")
+    private Duration flushInterval;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    public TicketService(TicketRepository ticketRepository, PlatformTransactionManager transactionManager,
+                         @Value("${email.tickets.cache-size:10000}") int cacheSize) {
+        this.ticketRepository = ticketRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ticket> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::writeBatches, "ticket-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        writer.interrupt();
+    }
+
+    public CompletableFuture<Void> save(Ticket ticket) {
+        PendingTicket request = new PendingTicket(ticket, new CompletableFuture<>());
+        pending.add(request);
+        return request.result();
+    }
+
+    public Optional<Ticket> findByTicketId(String ticketId) {
+        synchronized (cache) {
+            Ticket cached = cache.get(ticketId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<Ticket> ticket = ticketRepository.findByTicketId(ticketId);
+        ticket.ifPresent(this::cache);
+        return ticket;
+    }
+
+    public Optional<String> findStatus(String ticketId) {
+        return findByTicketId(ticketId).map(Ticket::getStatus);
+    }
+
+    private void writeBatches() {
+        List<PendingTicket> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingTicket first = pending.take();
+                batch.add(first);
+                long flushAt = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    PendingTicket next = pending.poll(flushAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingTicket> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> insertNew(batch));
+            batch.forEach(request -> {
+                cache(request.ticket());
+                request.result().complete(null);
+            });
+        } catch (RuntimeException batchFailure) {
+            // Retry one by one so a single bad row does not fail the whole batch
+            log.warn("Ticket batch of {} failed, retrying individually", batch.size(), batchFailure);
+            for (PendingTicket request : batch) {
+                // The rolled-back batch may already have assigned sequence ids
+                request.ticket().setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> insertNew(List.of(request)));
+                    cache(request.ticket());
+                    request.result().complete(null);
+                } catch (RuntimeException e) {
+                    request.result().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void insertNew(List<PendingTicket> batch) {
+        Set<String> ticketIds = new HashSet<>();
+        batch.forEach(request -> ticketIds.add(request.ticket().getTicketId()));
+        Set<String> existing = new HashSet<>(ticketRepository.findExistingTicketIds(ticketIds));
+        List<Ticket> toInsert = new ArrayList<>(batch.size());
+        for (PendingTicket request : batch) {
+            if (existing.add(request.ticket().getTicketId())) {
+                toInsert.add(request.ticket());
+            }
+        }
+        ticketRepository.saveAll(toInsert);
+        ticketRepository.flush();
+    }
+
+    private void cache(Ticket ticket) {
+        if (ticket.getId() == null) {
+            return; // skipped as a duplicate, the stored row is authoritative
+        }
+        synchronized (cache) {
+            cache.put(ticket.getTicketId(), ticket);
+        }
+    }
+
+    private record PendingTicket(Ticket ticket, CompletableFuture<Void> result) {
+    }
+}
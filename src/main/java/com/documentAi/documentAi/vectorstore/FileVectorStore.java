@@ -0,0 +1,459 @@
+package com.documentAi.documentAi.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link VectorStore} whose embeddings survive restarts. Entries live in memory as
+ * normalized {@code float[]} vectors and are written to a single binary file, which is
+ * memory-mapped and read back at startup. {@link #add} only calls the embedding model for
+ * ids it does not hold yet, so re-ingesting an unchanged corpus costs no embedding calls
+ * when callers derive ids from chunk content; ids it already holds take the new metadata.
+ * New documents are embedded in batches of {@code embeddingBatchSize} texts per request.
+ * <p>
+ * Searches go through an {@link HnswIndex} once the store holds more than
+ * {@code exactSearchBelow} entries; smaller stores are scanned exactly. Both paths
+ * support portable metadata filter expressions.
+ * <p>
+ * {@link #add} and {@link #delete} only change the store in memory. The file is rewritten
+ * by {@link #flush}, so a caller that deletes and adds many documents writes it once;
+ * closing the store flushes as well.
+ */
+public class FileVectorStore implements VectorStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileVectorStore.class);
+
+    private static final int MAGIC = 0x56535431; // "VST1"
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final EmbeddingModel embeddingModel;
+    private final Path file;
+    private final String modelKey;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int exactSearchBelow;
+    private final int embeddingBatchSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Integer> nodeById = new HashMap<>();
+    private final List<Entry> entryByNode = new ArrayList<>();
+    private HnswIndex index;
+    private boolean dirty;
+
+    public FileVectorStore(EmbeddingModel embeddingModel, Path file, String modelKey) {
+        this(embeddingModel, file, modelKey, 16, 200, 64, 2000);
+    }
+
+    /**
+     * @param m                links per graph node; higher gives better recall and a larger index
+     * @param efConstruction   candidate list size while inserting
+     * @param efSearch         candidate list size per query; higher gives better recall and slower queries
+     * @param exactSearchBelow stores smaller than this are scanned exactly instead of using the graph
+     */
+    public FileVectorStore(EmbeddingModel embeddingModel, Path file, String modelKey,
+                           int m, int efConstruction, int efSearch, int exactSearchBelow) {
+        this(embeddingModel, file, modelKey, m, efConstruction, efSearch, exactSearchBelow, 32);
+    }
+
+    /**
+     * @param embeddingBatchSize texts sent to the embedding model per request when adding documents
+     */
+    public FileVectorStore(EmbeddingModel embeddingModel, Path file, String modelKey,
+                           int m, int efConstruction, int efSearch, int exactSearchBelow, int embeddingBatchSize) {
+        this.embeddingModel = embeddingModel;
+        this.file = file;
+        this.modelKey = modelKey;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.exactSearchBelow = exactSearchBelow;
+        this.embeddingBatchSize = embeddingBatchSize;
+        this.index = new HnswIndex(m, efConstruction);
+        load();
+        rebuildIndex();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        List<Document> missing;
+        lock.readLock().lock();
+        try {
+            missing = documents.stream().filter(document -> !entries.containsKey(document.getId())).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (missing.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                if (refreshMetadata(documents)) {
+                    dirty = true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        logger.info("Embedding {} new of {} documents", missing.size(), documents.size());
+        List<Entry> embedded = new ArrayList<>(missing.size());
+        for (int start = 0; start < missing.size(); start += embeddingBatchSize) {
+            List<Document> batch = missing.subList(start, Math.min(start + embeddingBatchSize, missing.size()));
+            List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getContent).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                Document document = batch.get(i);
+                embedded.add(new Entry(document.getId(), document.getContent(), document.getMetadata(),
+                        Vectors.normalize(embeddings.get(i))));
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            refreshMetadata(documents);
+            for (Entry entry : embedded) {
+                if (entries.putIfAbsent(entry.id(), entry) == null) {
+                    indexEntry(entry);
+                }
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = false;
+            for (String id : idList) {
+                if (entries.remove(id) != null) {
+                    int node = nodeById.remove(id);
+                    entryByNode.set(node, null);
+                    index.markDeleted(node);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                // Tombstones still cost traversal time; compact once they are a large share of the graph
+                if (index.deletedCount() > index.size() / 4) {
+                    rebuildIndex();
+                }
+                dirty = true;
+            }
+            return Optional.of(removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = Vectors.normalize(embeddingModel.embed(request.getQuery()));
+        Filter.Expression filter = request.getFilterExpression();
+        lock.readLock().lock();
+        try {
+            List<Scored> results = entries.size() < exactSearchBelow
+                    ? exactSearch(query, request.getTopK(), filter)
+                    : indexSearch(query, request.getTopK(), filter);
+            return results.stream()
+                    .filter(scored -> scored.similarity() >= request.getSimilarityThreshold())
+                    .map(Scored::toDocument)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Scored> exactSearch(float[] query, int topK, Filter.Expression filter) {
+        return entries.values().stream()
+                .filter(entry -> entry.embedding().length == query.length)
+                .filter(entry -> filter == null || FilterExpressionEvaluator.matches(filter, entry.metadata()))
+                .map(entry -> new Scored(entry, Vectors.dot(query, entry.embedding())))
+                .sorted(Comparator.comparingDouble(Scored::similarity).reversed())
+                .limit(topK)
+                .toList();
+    }
+
+    private List<Scored> indexSearch(float[] query, int topK, Filter.Expression filter) {
+        IntPredicate accept = filter == null
+                ? node -> true
+                : node -> FilterExpressionEvaluator.matches(filter, entryByNode.get(node).metadata());
+        return indexSearch(query, topK, accept);
+    }
+
+    private List<Scored> indexSearch(float[] query, int topK, IntPredicate accept) {
+        return index.search(query, topK, efSearch, accept).stream()
+                .map(candidate -> new Scored(entryByNode.get(candidate.node()), 1 - candidate.distance()))
+                .toList();
+    }
+
+    /**
+     * The given documents most similar to an embedding the caller already has, e.g. to
+     * rerank candidates it narrowed down itself. Few candidates are scored exactly, many
+     * through the graph. Costs no embedding call.
+     */
+    public List<Document> similaritySearch(float[] embedding, Collection<String> ids, int topK) {
+        float[] query = Vectors.normalize(embedding);
+        lock.readLock().lock();
+        try {
+            List<Scored> results;
+            if (ids.size() < exactSearchBelow) {
+                results = ids.stream()
+                        .map(entries::get)
+                        .filter(entry -> entry != null && entry.embedding().length == query.length)
+                        .map(entry -> new Scored(entry, Vectors.dot(query, entry.embedding())))
+                        .sorted(Comparator.comparingDouble(Scored::similarity).reversed())
+                        .limit(topK)
+                        .toList();
+            } else {
+                Set<String> accepted = new HashSet<>(ids);
+                results = indexSearch(query, topK, node -> accepted.contains(entryByNode.get(node).id()));
+            }
+            return results.stream().map(Scored::toDocument).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All stored documents without their embeddings, e.g. to build a keyword index.
+     */
+    public List<Document> documents() {
+        lock.readLock().lock();
+        try {
+            return entries.values().stream()
+                    .map(entry -> new Document(entry.id(), entry.content(), new HashMap<>(entry.metadata())))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of stored documents whose metadata has the given value, e.g. all chunks of one source file.
+     */
+    public Set<String> findIds(String metadataKey, Object value) {
+        lock.readLock().lock();
+        try {
+            return entries.values().stream()
+                    .filter(entry -> Objects.equals(entry.metadata().get(metadataKey), value))
+                    .map(Entry::id)
+                    .collect(Collectors.toSet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct values of a metadata key across stored documents, e.g. every ingested source file.
+     */
+    public Set<Object> metadataValues(String metadataKey) {
+        lock.readLock().lock();
+        try {
+            return entries.values().stream()
+                    .map(entry -> entry.metadata().get(metadataKey))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct values of one metadata key for each value of another, e.g. the file hashes
+     * stored for each source file.
+     */
+    public Map<Object, Set<Object>> metadataValues(String groupKey, String valueKey) {
+        lock.readLock().lock();
+        try {
+            Map<Object, Set<Object>> values = new HashMap<>();
+            for (Entry entry : entries.values()) {
+                Object group = entry.metadata().get(groupKey);
+                if (group != null) {
+                    values.computeIfAbsent(group, key -> new HashSet<>()).add(entry.metadata().get(valueKey));
+                }
+            }
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gives stored entries the metadata of re-added documents with the same id, keeping
+     * their embeddings. Callers hold the write lock.
+     */
+    private boolean refreshMetadata(List<Document> documents) {
+        boolean changed = false;
+        for (Document document : documents) {
+            Entry stored = entries.get(document.getId());
+            if (stored != null && !stored.metadata().equals(document.getMetadata())) {
+                Entry updated = new Entry(stored.id(), stored.content(), new HashMap<>(document.getMetadata()), stored.embedding());
+                entries.put(updated.id(), updated);
+                entryByNode.set(nodeById.get(updated.id()), updated);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void rebuildIndex() {
+        index = new HnswIndex(m, efConstruction);
+        nodeById.clear();
+        entryByNode.clear();
+        entries.values().forEach(this::indexEntry);
+    }
+
+    private void indexEntry(Entry entry) {
+        int node = index.add(entry.embedding());
+        nodeById.put(entry.id(), node);
+        entryByNode.add(entry);
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                logger.warn("Ignoring {}: not a vector store file", file);
+                return;
+            }
+            String storedModel = readString(buffer);
+            if (!storedModel.equals(modelKey)) {
+                logger.info("Embedding model changed from {} to {}, discarding {}", storedModel, modelKey, file);
+                return;
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String id = readString(buffer);
+                String content = readString(buffer);
+                Map<String, Object> metadata = objectMapper.readValue(readString(buffer), new TypeReference<>() {
+                });
+                float[] embedding = new float[buffer.getInt()];
+                buffer.asFloatBuffer().get(embedding);
+                buffer.position(buffer.position() + embedding.length * Float.BYTES);
+                entries.put(id, new Entry(id, content, metadata, embedding));
+            }
+            logger.info("Loaded {} embeddings from {}", count, file);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read {}, starting with an empty store", file, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Writes the changes made since the last flush to the file, if there are any.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (dirty) {
+                save();
+                dirty = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Rewrites the file through a temporary copy so a crash never leaves a torn store behind.
+     * Callers hold the write lock.
+     */
+    private void save() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                writeString(out, modelKey);
+                out.writeInt(entries.size());
+                for (Entry entry : entries.values()) {
+                    writeString(out, entry.id());
+                    writeString(out, entry.content());
+                    writeString(out, objectMapper.writeValueAsString(entry.metadata()));
+                    out.writeInt(entry.embedding().length);
+                    for (float value : entry.embedding()) {
+                        out.writeFloat(value);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write vector store " + file, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    record Entry(String id, String content, Map<String, Object> metadata, float[] embedding) {
+    }
+
+    private record Scored(Entry entry, float similarity) {
+        Document toDocument() {
+            Map<String, Object> metadata = new HashMap<>(entry.metadata());
+            metadata.put("distance", 1 - similarity);
+            return new Document(entry.id(), entry.content(), metadata);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.documentAi.documentAi.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates a portable Spring AI {@link Filter.Expression} against a document's metadata.
+ */
+final class FilterExpressionEvaluator {
+
+    private FilterExpressionEvaluator() {
+    }
+
+    static boolean matches(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Group group) {
+            return matches(group.content(), metadata);
+        }
+        if (!(operand instanceof Filter.Expression expression)) {
+            throw new IllegalArgumentException("Unsupported filter operand: " + operand);
+        }
+        return switch (expression.type()) {
+            case AND -> matches(expression.left(), metadata) && matches(expression.right(), metadata);
+            case OR -> matches(expression.left(), metadata) || matches(expression.right(), metadata);
+            case NOT -> !matches(expression.left(), metadata);
+            case EQ -> valueEquals(actual(expression, metadata), expected(expression));
+            case NE -> !valueEquals(actual(expression, metadata), expected(expression));
+            case GT -> compare(actual(expression, metadata), expected(expression), order -> order > 0);
+            case GTE -> compare(actual(expression, metadata), expected(expression), order -> order >= 0);
+            case LT -> compare(actual(expression, metadata), expected(expression), order -> order < 0);
+            case LTE -> compare(actual(expression, metadata), expected(expression), order -> order <= 0);
+            case IN -> in(actual(expression, metadata), expected(expression));
+            case NIN -> !in(actual(expression, metadata), expected(expression));
+        };
+    }
+
+    private static Object actual(Filter.Expression expression, Map<String, Object> metadata) {
+        String key = ((Filter.Key) expression.left()).key();
+        // Keys parsed from text expressions may keep their quotes
+        if (key.length() > 1 && (key.startsWith("'") || key.startsWith("\""))) {
+            key = key.substring(1, key.length() - 1);
+        }
+        return metadata.get(key);
+    }
+
+    private static Object expected(Filter.Expression expression) {
+        return ((Filter.Value) expression.right()).value();
+    }
+
+    private static boolean in(Object actual, Object expected) {
+        if (!(expected instanceof Collection<?> values)) {
+            return valueEquals(actual, expected);
+        }
+        return values.stream().anyMatch(value -> valueEquals(actual, value));
+    }
+
+    private static boolean valueEquals(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return a.doubleValue() == b.doubleValue();
+        }
+        return Objects.equals(actual, expected) || (actual != null && expected != null && actual.toString().equals(expected.toString()));
+    }
+
+    /**
+     * A document without the key matches no comparison, as in {@code SimpleVectorStore}.
+     */
+    private static boolean compare(Object actual, Object expected, IntPredicate accept) {
+        return actual != null && accept.test(compare(actual, expected));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        if (actual instanceof Comparable comparable && actual.getClass().isInstance(expected)) {
+            return comparable.compareTo(expected);
+        }
+        return actual.toString().compareTo(String.valueOf(expected));
+    }
+}
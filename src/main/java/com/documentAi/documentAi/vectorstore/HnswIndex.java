@@ -0,0 +1,222 @@
+package com.documentAi.documentAi.vectorstore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over normalized {@code float[]} vectors,
+ * using cosine distance ({@code 1 - dot}). Nodes are dense int ids in insertion order.
+ * Deleted nodes stay in the graph for navigation but are never returned.
+ * <p>
+ * Not thread-safe; {@link FileVectorStore} guards it with a read/write lock.
+ */
+final class HnswIndex {
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelLambda;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final List<Node> nodes = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    /**
+     * @param m              links per node on the upper layers (twice that on layer 0); higher improves recall and memory use
+     * @param efConstruction candidate list size while building; higher builds a better graph, slower
+     */
+    HnswIndex(int m, int efConstruction) {
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelLambda = 1 / Math.log(m);
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    int add(float[] vector) {
+        int id = nodes.size();
+        int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelLambda);
+        nodes.add(new Node(vector, level));
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return id;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Candidate> closest = searchLayer(vector, current, efConstruction, layer, node -> true);
+            int limit = layer == 0 ? maxM0 : m;
+            for (int i = 0; i < Math.min(m, closest.size()); i++) {
+                int neighbor = closest.get(i).node();
+                link(id, neighbor, layer, limit);
+                link(neighbor, id, layer, limit);
+            }
+            current = closest.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = id;
+        }
+        return id;
+    }
+
+    void markDeleted(int id) {
+        Node node = nodes.get(id);
+        if (!node.deleted) {
+            node.deleted = true;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Returns up to {@code k} live nodes accepted by {@code filter}, closest first.
+     *
+     * @param ef candidate list size at query time; raise it to trade latency for recall
+     */
+    List<Candidate> search(float[] query, int k, int ef, IntPredicate filter) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedyClosest(query, current, layer);
+        }
+        List<Candidate> results = searchLayer(query, current, Math.max(ef, k), 0,
+                node -> !nodes.get(node).deleted && filter.test(node));
+        return results.size() > k ? results.subList(0, k) : results;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            for (int i = 0; i < node.linkCount[layer]; i++) {
+                int neighbor = node.links[layer][i];
+                float distance = distance(query, neighbor);
+                if (distance < currentDistance) {
+                    current = neighbor;
+                    currentDistance = distance;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer. Every reachable node can steer the search, but only
+     * nodes passing {@code accept} enter the result list, so filtered queries still fill up.
+     */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int layer, IntPredicate accept) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+
+        Candidate first = new Candidate(start, distance(query, start));
+        visited.set(start);
+        candidates.add(first);
+        if (accept.test(start)) {
+            results.add(first);
+        }
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.distance() > results.peek().distance()) {
+                break;
+            }
+            Node node = nodes.get(candidate.node());
+            for (int i = 0; i < node.linkCount[layer]; i++) {
+                int neighbor = node.links[layer][i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float distance = distance(query, neighbor);
+                if (results.size() < ef || distance < results.peek().distance()) {
+                    Candidate next = new Candidate(neighbor, distance);
+                    candidates.add(next);
+                    if (accept.test(neighbor)) {
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Candidate::distance));
+        return sorted;
+    }
+
+    /**
+     * Adds a directed link; when the node is full, keeps only its {@code limit} closest neighbors.
+     */
+    private void link(int from, int to, int layer, int limit) {
+        Node node = nodes.get(from);
+        int count = node.linkCount[layer];
+        if (node.links[layer].length == count) {
+            int[] grown = new int[Math.min(limit + 1, Math.max(4, count * 2))];
+            System.arraycopy(node.links[layer], 0, grown, 0, count);
+            node.links[layer] = grown;
+        }
+        node.links[layer][count] = to;
+        node.linkCount[layer] = ++count;
+        if (count <= limit) {
+            return;
+        }
+        List<Candidate> neighbors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int neighbor = node.links[layer][i];
+            neighbors.add(new Candidate(neighbor, distance(node.vector, neighbor)));
+        }
+        neighbors.sort(Comparator.comparingDouble(Candidate::distance));
+        for (int i = 0; i < limit; i++) {
+            node.links[layer][i] = neighbors.get(i).node();
+        }
+        node.linkCount[layer] = limit;
+    }
+
+    private float distance(float[] query, int node) {
+        return 1 - Vectors.dot(query, nodes.get(node).vector);
+    }
+
+    record Candidate(int node, float distance) {
+    }
+
+    private static final class Node {
+        private final float[] vector;
+        private final int[][] links;
+        private final int[] linkCount;
+        private boolean deleted;
+
+        private Node(float[] vector, int level) {
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCount = new int[level + 1];
+            for (int layer = 0; layer <= level; layer++) {
+                links[layer] = new int[4];
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.documentAi.documentAi.vectorstore;
+
+/**
+ * Cosine similarity on unit vectors: embeddings are normalized once when stored or
+ * queried, after which similarity is a plain dot product.
+ */
+public final class Vectors {
+
+    private Vectors() {
+    }
+
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0 : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -1,19 +1,33 @@
 package com.documentAi.documentAi.workers;
 
-import org.apache.commons.lang3.RandomStringUtils;
+import com.documentAi.documentAi.service.PipelineMetrics;
+import com.documentAi.documentAi.service.TicketIdAllocator;
+import lombok.extern.slf4j.Slf4j;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
-import java.util.Map;
-
 @Component
+@Slf4j
 public class GenerateTicketDelegate implements JavaDelegate {
+    @Autowired
+    TicketIdAllocator ticketIdAllocator;
+
+    @Autowired
+    PipelineMetrics pipelineMetrics;
+
     @Override
     public void execute(DelegateExecution execution) throws Exception {
-        String ticketId = RandomStringUtils.randomAlphanumeric(8).toUpperCase();;
-        execution.setVariable("ticketId", ticketId);
-        System.out.println("Generated Ticket ID: " + ticketId);
+        String ticketId = pipelineMetrics.time("camunda.generate-ticket", () -> {
+            // EmailService allocates the id up front; only processes started elsewhere need one here
+            String id = (String) execution.getVariable("ticketId");
+            if (id == null) {
+                id = ticketIdAllocator.nextId();
+                execution.setVariable("ticketId", id);
+            }
+            return id;
+        });
+        log.debug("Generated ticket ID {}", ticketId);
     }
-}
\ No newline at end of file
+}
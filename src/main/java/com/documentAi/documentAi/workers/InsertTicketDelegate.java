@@ -1,17 +1,25 @@
 package com.documentAi.documentAi.workers;
 
 import com.documentAi.documentAi.domain.Ticket;
-import com.documentAi.documentAi.repository.TicketRepository;
+import com.documentAi.documentAi.service.PipelineMetrics;
+import com.documentAi.documentAi.service.TicketService;
+import lombok.extern.slf4j.Slf4j;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 
 @Component
+@Slf4j
 public class InsertTicketDelegate implements JavaDelegate {
     @Autowired
-    TicketRepository ticketRepository;
+    TicketService ticketService;
+
+    @Autowired
+    PipelineMetrics pipelineMetrics;
 
     @Override
     public void execute(DelegateExecution execution) throws Exception {
@@ -19,7 +27,10 @@ public class InsertTicketDelegate implements JavaDelegate {
         Ticket ticket = new Ticket();
         ticket.setTicketId(ticketId);
         ticket.setStatus("In Progress");
-        ticketRepository.save(ticket);
-        System.out.println("Inserted Ticket into DB with ID: " + ticketId);
+        // EmailService commits the row with the reply before starting the process, so this is
+        // normally a no-op; it only inserts for processes started elsewhere.
+        // Joins the current JDBC batch and waits until it is committed
+        pipelineMetrics.time("camunda.insert-ticket", () -> ticketService.save(ticket).get(30, TimeUnit.SECONDS));
+        log.debug("Inserted ticket {} into DB", ticketId);
     }
 }
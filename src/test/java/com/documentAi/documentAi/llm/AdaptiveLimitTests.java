@@ -0,0 +1,77 @@
+package com.documentAi.documentAi.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveLimitTests {
+
+	@Test
+	void growsByOneSlotPerRoundOfFastCallsUpToTheMaximum() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit(2, 1, 4, 1, TimeUnit.SECONDS);
+
+		// 2 -> 2.5 -> 2.9 -> 3.24
+		completeFastCalls(limit, 3);
+		assertThat(limit.limit()).isEqualTo(3);
+
+		completeFastCalls(limit, 100);
+		assertThat(limit.limit()).isEqualTo(4);
+	}
+
+	@Test
+	void shrinksOnFailureOrSlowCallsAtMostOncePerTargetInterval() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit(8, 1, 8, 1, TimeUnit.HOURS);
+
+		limit.acquire();
+		limit.release(0, false);
+		assertThat(limit.limit()).isEqualTo(6);
+
+		limit.acquire();
+		limit.release(TimeUnit.HOURS.toNanos(2), true);
+		assertThat(limit.limit()).isEqualTo(6);
+	}
+
+	@Test
+	void neverShrinksBelowTheMinimum() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit(4, 1, 8, 0, TimeUnit.NANOSECONDS);
+
+		for (int i = 0; i < 5; i++) {
+			limit.acquire();
+			limit.release(1, false);
+		}
+
+		assertThat(limit.limit()).isEqualTo(1);
+	}
+
+	@Test
+	void callersOverTheLimitWaitForAFreeSlot() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit(1, 1, 1, 1, TimeUnit.SECONDS);
+		limit.acquire();
+
+		CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+			try {
+				limit.acquire();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertThatThrownBy(() -> waiting.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+		assertThat(limit.inFlight()).isEqualTo(1);
+
+		limit.release(0, true);
+		waiting.get(1, TimeUnit.SECONDS);
+		assertThat(limit.inFlight()).isEqualTo(1);
+	}
+
+	private static void completeFastCalls(AdaptiveLimit limit, int calls) throws InterruptedException {
+		for (int i = 0; i < calls; i++) {
+			limit.acquire();
+			limit.release(0, true);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.documentAi.documentAi.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTests {
+
+	@Test
+	void opensOnlyAfterConsecutiveFailures() {
+		CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofHours(1));
+
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onSuccess();
+		breaker.onFailure();
+		breaker.onFailure();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		breaker.onFailure();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void letsOneProbeThroughAfterTheOpenInterval() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(50));
+		breaker.onFailure();
+
+		long start = System.nanoTime();
+		breaker.acquire();
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+		CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+			try {
+				breaker.acquire();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertThatThrownBy(() -> second.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+		breaker.onSuccess();
+		second.get(1, TimeUnit.SECONDS);
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void failedProbeOpensAgain() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(5, Duration.ofMillis(10));
+		for (int i = 0; i < 5; i++) {
+			breaker.onFailure();
+		}
+		breaker.acquire();
+
+		breaker.onFailure();
+
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void cancelledProbeLetsTheNextCallerProbe() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(10));
+		breaker.onFailure();
+		assertThat(breaker.acquire()).isTrue();
+
+		breaker.cancelProbe();
+
+		assertThat(CompletableFuture.supplyAsync(() -> {
+			try {
+				return breaker.acquire();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}).get(1, TimeUnit.SECONDS)).isTrue();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+	}
+}
@@ -0,0 +1,114 @@
+package com.documentAi.documentAi.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmGatewayTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private LlmGateway gateway(int failureThreshold) {
+		return new LlmGateway(meterRegistry, 2, 1, 8,
+				Duration.ofSeconds(30), Duration.ofMillis(50),
+				Duration.ofSeconds(2), Duration.ofMillis(50),
+				3, Duration.ofMillis(1), Duration.ofMillis(1),
+				failureThreshold, Duration.ofHours(1));
+	}
+
+	@Test
+	void timedOutCallIsNotRetriedAndItsLateSuccessDoesNotCloseTheBreaker() throws Exception {
+		LlmGateway gateway = gateway(1);
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch finished = new CountDownLatch(1);
+
+		assertThatThrownBy(() -> gateway.call(LlmGateway.Kind.CHAT, () -> {
+			attempts.incrementAndGet();
+			sleep(200);
+			finished.countDown();
+			return "late";
+		})).isInstanceOf(LlmGateway.CallTimeoutException.class);
+
+		assertThat(finished.await(1, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(50); // let the completion callback run
+		assertThat(attempts).hasValue(1);
+		assertThat(meterRegistry.get("email.llm.breaker.open").gauge().value()).isEqualTo(1);
+		assertThat(meterRegistry.get("email.llm.in-flight").tag("kind", "chat").gauge().value()).isZero();
+	}
+
+	@Test
+	void probeInterruptedWhileWaitingForASlotDoesNotBlockLaterCalls() throws Exception {
+		LlmGateway gateway = new LlmGateway(meterRegistry, 1, 1, 1,
+				Duration.ofSeconds(30), Duration.ofMillis(50),
+				Duration.ofSeconds(2), Duration.ofMillis(50),
+				3, Duration.ofMillis(1), Duration.ofMillis(1),
+				1, Duration.ofMillis(100));
+		CountDownLatch release = new CountDownLatch(1);
+
+		// Times out and opens the breaker, while its orphan keeps the only slot
+		assertThatThrownBy(() -> gateway.call(LlmGateway.Kind.CHAT, () -> {
+			await(release);
+			return "orphan";
+		})).isInstanceOf(LlmGateway.CallTimeoutException.class);
+		Thread.sleep(150);
+
+		AtomicReference<Throwable> probeError = new AtomicReference<>();
+		Thread probe = new Thread(() -> {
+			try {
+				gateway.call(LlmGateway.Kind.CHAT, () -> "probe");
+			} catch (Throwable e) {
+				probeError.set(e);
+			}
+		});
+		probe.start();
+		Thread.sleep(100); // the probe now waits for the orphan's slot
+		probe.interrupt();
+		probe.join(1_000);
+		assertThat(probeError.get()).isInstanceOf(CancellationException.class);
+
+		release.countDown();
+		assertThat(CompletableFuture.supplyAsync(() -> gateway.call(LlmGateway.Kind.CHAT, () -> "next"))
+				.get(1, TimeUnit.SECONDS)).isEqualTo("next");
+		assertThat(meterRegistry.get("email.llm.breaker.open").gauge().value()).isZero();
+	}
+
+	@Test
+	void retriesOrdinaryFailures() {
+		LlmGateway gateway = gateway(10);
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThatThrownBy(() -> gateway.call(LlmGateway.Kind.EMBEDDING, () -> {
+			attempts.incrementAndGet();
+			throw new IllegalStateException("model server unavailable");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(attempts).hasValue(3);
+		assertThat(meterRegistry.get("email.llm.breaker.open").gauge().value()).isZero();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
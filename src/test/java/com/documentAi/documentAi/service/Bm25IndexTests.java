@@ -0,0 +1,59 @@
+package com.documentAi.documentAi.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTests {
+
+	private static final Document ROOF_DAMAGE = document("roof-damage", "A", "Storm damage to the roof, the roof leaks");
+	private static final Document ROOF_INVOICE = document("roof-invoice", "A", "Invoice for the roof inspection");
+	private static final Document GARDEN = document("garden", "B", "Garden fence blown over in the storm");
+
+	private final Bm25Index index = new Bm25Index(List.of(ROOF_DAMAGE, ROOF_INVOICE, GARDEN),
+			document -> (String) document.getMetadata().get("partition"));
+
+	@Test
+	void ranksDocumentsByTermFrequencyAndRarity() {
+		List<Bm25Index.Hit> hits = index.search("roof damage", Set.of("A", "B"), 10);
+
+		assertThat(hits).extracting(Bm25Index.Hit::document).containsExactly(ROOF_DAMAGE, ROOF_INVOICE);
+		assertThat(hits.get(0).score()).isGreaterThan(hits.get(1).score());
+	}
+
+	@Test
+	void returnsAtMostTheLimitAndNothingWithoutSharedTerms() {
+		assertThat(index.search("roof damage", Set.of("A", "B"), 1))
+				.extracting(Bm25Index.Hit::document)
+				.containsExactly(ROOF_DAMAGE);
+		assertThat(index.search("travel insurance quote", Set.of("A", "B"), 10)).isEmpty();
+	}
+
+	@Test
+	void searchesOnlyTheRequestedPartitions() {
+		assertThat(index.search("storm", Set.of("B"), 10)).extracting(Bm25Index.Hit::document).containsExactly(GARDEN);
+		assertThat(index.search("storm", Set.of("A"), 10)).extracting(Bm25Index.Hit::document).containsExactly(ROOF_DAMAGE);
+		assertThat(index.search("storm", Set.of("C"), 10)).isEmpty();
+	}
+
+	@Test
+	void scoresDoNotDependOnWhichPartitionsAreSearched() {
+		double alone = index.search("storm", Set.of("B"), 10).get(0).score();
+		double together = index.search("storm", Set.of("A", "B"), 10).stream()
+				.filter(hit -> hit.document() == GARDEN)
+				.findFirst()
+				.orElseThrow()
+				.score();
+
+		assertThat(together).isEqualTo(alone);
+	}
+
+	private static Document document(String id, String partition, String content) {
+		return new Document(id, content, Map.of("partition", partition));
+	}
+}
@@ -0,0 +1,38 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailClassifierTests {
+
+	private EmailClassifier classifier(double threshold) throws Exception {
+		return new EmailClassifier(new ClassPathResource("classifier/labelled-emails.tsv"), threshold, 3);
+	}
+
+	@Test
+	void classifiesClearCasesLocally() throws Exception {
+		EmailClassifier classifier = classifier(0.9);
+
+		assertThat(classifier.classify("I was charged twice for my premium, please refund the duplicate payment"))
+				.contains(EmailCategory.BILLING);
+		assertThat(classifier.classify("My car was damaged in an accident and I need to file a claim"))
+				.contains(EmailCategory.CLAIM);
+		assertThat(classifier.stats().getLocalDecisions()).isEqualTo(2);
+	}
+
+	@Test
+	void leavesUnknownTextToTheLlm() throws Exception {
+		EmailClassifier classifier = classifier(0.9);
+
+		Optional<EmailCategory> category = classifier.classify("Lorem ipsum dolor sit amet");
+
+		assertThat(category).isEmpty();
+		assertThat(classifier.stats().getLlmFallbacks()).isEqualTo(1);
+		assertThat(classifier.stats().getHitRate()).isZero();
+	}
+}
@@ -0,0 +1,206 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import com.documentAi.documentAi.support.StubChatModel;
+import com.documentAi.documentAi.support.StubEmbeddingModel;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.camunda.bpm.engine.RuntimeService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Offline throughput test of the full path: IMAP fetch, extraction into the inbound table,
+ * categorization, reply generation, the ticket and outbox commit, Camunda ticketProcess
+ * and the outbox drain to SMTP, against an embedded GreenMail
+ * server and stub models with fixed latency. Writes messages/sec, end-to-end p50/p99
+ * and the time spent in each stage to {@code target/loadtest-report.txt}.
+ * <p>
+ * Tagged {@code loadtest} and skipped by default; run with {@code ./mvnw -P loadtest test}.
+ * {@code -Dloadtest.messages}, {@code -Dloadtest.chat-latency} and
+ * {@code -Dloadtest.embedding-latency} change the load.
+ */
+@Tag("loadtest")
+@SpringBootTest(properties = {
+		"spring.autoconfigure.exclude=org.springframework.ai.autoconfigure.ollama.OllamaAutoConfiguration",
+		"spring.mail.host=localhost",
+		"spring.mail.port=3025",
+		"spring.mail.username=" + EmailPipelineLoadTest.MAILBOX,
+		"spring.mail.password=" + EmailPipelineLoadTest.PASSWORD,
+		"email.imap.protocol=imap",
+		"email.imap.host=localhost",
+		"email.imap.port=3143",
+		"email.imap.folder=INBOX",
+		"email.poll.cron=-",
+		"email.thread.settle=0s",
+		"email.vectorstore.path=target/loadtest/vector-store.bin",
+		"spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+		"debug=false",
+		"logging.level.com.documentAi=WARN"
+})
+class EmailPipelineLoadTest {
+
+	static final String MAILBOX = "support@localhost";
+	static final String PASSWORD = "secret";
+	private static final Path REPORT = Path.of("target", "loadtest-report.txt");
+
+	private static final int MESSAGES = Integer.getInteger("loadtest.messages", 200);
+	private static final Duration CHAT_LATENCY = Duration.parse(System.getProperty("loadtest.chat-latency", "PT0.2S"));
+	private static final Duration EMBEDDING_LATENCY = Duration.parse(System.getProperty("loadtest.embedding-latency", "PT0.02S"));
+	private static final Duration TIMEOUT = Duration.ofMinutes(10);
+
+	private static final Map<EmailCategory, String> BODIES = Map.of(
+			EmailCategory.CLAIM, "I want to file a claim for storm damage to my roof, policy HP-%d.",
+			EmailCategory.BILLING, "My last invoice shows a premium of %d dollars, which is higher than agreed.",
+			EmailCategory.POLICY_UPDATE, "Please update the address on policy HP-%d, we moved last month.",
+			EmailCategory.COMPLAINT, "I am unhappy with how my case %d was handled and want to complain.",
+			EmailCategory.ENQUIRY, "Could you send me a quote for travel coverage, reference %d?",
+			EmailCategory.GENERAL, "Hello, just checking in about message %d.");
+
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP_IMAP)
+			.withConfiguration(GreenMailConfiguration.aConfig().withUser(MAILBOX, MAILBOX, PASSWORD))
+			.withPerMethodLifecycle(false);
+
+	@Autowired
+	EmailService emailService;
+
+	@Autowired
+	RuntimeService runtimeService;
+
+	@Autowired
+	ProcessedEvents processedEvents;
+
+	@Test
+	void throughputOfTheFullPipeline() throws Exception {
+		seed();
+
+		long start = System.nanoTime();
+		long deadline = start + TIMEOUT.toNanos();
+		while (processedEvents.events.size() < MESSAGES && System.nanoTime() < deadline) {
+			emailService.processEmails();
+		}
+		// Replies leave through the outbox, which may still be draining
+		while (greenMail.getReceivedMessagesForDomain("example.com").length < MESSAGES && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		Duration pipeline = Duration.ofNanos(System.nanoTime() - start);
+		while (runtimeService.createProcessInstanceQuery().processDefinitionKey("ticketProcess").count() > 0
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		Duration withTickets = Duration.ofNanos(System.nanoTime() - start);
+
+		List<EmailProcessedEvent> events = new ArrayList<>(processedEvents.events);
+		report(events, pipeline, withTickets);
+
+		assertThat(events).hasSize(MESSAGES).allMatch(EmailProcessedEvent::success);
+		assertThat(greenMail.getReceivedMessagesForDomain("example.com")).hasSize(MESSAGES);
+	}
+
+	private static void seed() throws Exception {
+		GreenMailUser user = greenMail.getUserManager().getUserByEmail(MAILBOX);
+		Session session = Session.getInstance(new Properties());
+		EmailCategory[] categories = EmailCategory.values();
+		for (int i = 0; i < MESSAGES; i++) {
+			EmailCategory category = categories[i % categories.length];
+			MimeMessage message = new MimeMessage(session);
+			message.setFrom(new InternetAddress("customer-" + i + "@example.com", "Customer " + i));
+			message.setRecipient(jakarta.mail.Message.RecipientType.TO, new InternetAddress(MAILBOX));
+			message.setSubject(category + " request " + i);
+			message.setText(BODIES.get(category).formatted(1000 + i) + "\n\nKind regards,\nCustomer " + i, "UTF-8");
+			user.deliver(message);
+		}
+	}
+
+	private static void report(List<EmailProcessedEvent> events, Duration pipeline, Duration withTickets) throws IOException {
+		List<Duration> totals = events.stream().map(EmailProcessedEvent::total).sorted().toList();
+		Map<String, List<Duration>> stages = new TreeMap<>();
+		for (EmailProcessedEvent event : events) {
+			event.stages().forEach((stage, time) -> stages.computeIfAbsent(stage, key -> new ArrayList<>()).add(time));
+			Duration working = event.stages().values().stream().reduce(Duration.ZERO, Duration::plus);
+			stages.computeIfAbsent("(queued)", key -> new ArrayList<>()).add(event.total().minus(working));
+		}
+
+		StringBuilder out = new StringBuilder();
+		out.append("=== Load test: %d messages, chat %d ms, embedding %d ms ===%n".formatted(
+				events.size(), CHAT_LATENCY.toMillis(), EMBEDDING_LATENCY.toMillis()));
+		out.append("throughput       %8.1f msg/s (%d ms until last reply, %d ms until last ticket)%n".formatted(
+				events.size() * 1000.0 / Math.max(1, pipeline.toMillis()), pipeline.toMillis(), withTickets.toMillis()));
+		out.append("end-to-end       p50 %6d ms   p99 %6d ms%n".formatted(
+				percentile(totals, 50).toMillis(), percentile(totals, 99).toMillis()));
+		stages.forEach((stage, times) -> {
+			List<Duration> sorted = times.stream().sorted(Comparator.naturalOrder()).toList();
+			long mean = sorted.stream().mapToLong(Duration::toMillis).sum() / sorted.size();
+			out.append("  %-14s mean %6d ms   p50 %6d ms   p99 %6d ms%n".formatted(
+					stage, mean, percentile(sorted, 50).toMillis(), percentile(sorted, 99).toMillis()));
+		});
+		Files.writeString(REPORT, out);
+	}
+
+	private static Duration percentile(List<Duration> sorted, int percentile) {
+		if (sorted.isEmpty()) {
+			return Duration.ZERO;
+		}
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index));
+	}
+
+	static class ProcessedEvents {
+		final ConcurrentLinkedQueue<EmailProcessedEvent> events = new ConcurrentLinkedQueue<>();
+
+		@EventListener
+		void onProcessed(EmailProcessedEvent event) {
+			events.add(event);
+		}
+	}
+
+	/**
+	 * Stubs take the Ollama bean names, so they sit behind the real gateway like the real models.
+	 */
+	@TestConfiguration
+	static class StubModels {
+
+		@Bean
+		ChatModel ollamaChatModel() {
+			return new StubChatModel(CHAT_LATENCY);
+		}
+
+		@Bean
+		EmbeddingModel ollamaEmbeddingModel() {
+			return new StubEmbeddingModel(384, EMBEDDING_LATENCY);
+		}
+
+		@Bean
+		ProcessedEvents processedEvents() {
+			return new ProcessedEvents();
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.domain.InboundEmail;
+import com.documentAi.documentAi.domain.OutboxEmail;
+import com.documentAi.documentAi.repository.InboundEmailRepository;
+import com.documentAi.documentAi.repository.OutboxEmailRepository;
+import com.documentAi.documentAi.repository.TicketRepository;
+import com.documentAi.documentAi.support.StubChatModel;
+import com.documentAi.documentAi.support.StubEmbeddingModel;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Follow-ups of one customer conversation, fetched from an embedded GreenMail server, are
+ * answered together under one ticket. Extraction runs on one worker so messages are
+ * threaded in delivery order, and rows are due as soon as they are stored.
+ */
+@SpringBootTest(properties = {
+		"spring.autoconfigure.exclude=org.springframework.ai.autoconfigure.ollama.OllamaAutoConfiguration",
+		"spring.datasource.url=jdbc:h2:mem:threading;DB_CLOSE_DELAY=-1",
+		"spring.mail.host=localhost",
+		"spring.mail.port=3025",
+		"spring.mail.username=" + EmailThreadingTests.MAILBOX,
+		"spring.mail.password=" + EmailThreadingTests.PASSWORD,
+		"email.imap.protocol=imap",
+		"email.imap.host=localhost",
+		"email.imap.port=3143",
+		"email.imap.folder=INBOX",
+		"email.poll.cron=-",
+		"email.inbound.poll-interval=1h",
+		"email.outbox.poll-interval=1h",
+		"email.thread.settle=0s",
+		"email.pipeline.stages.extract.concurrency=1",
+		"email.vectorstore.path=target/threading/vector-store.bin"
+})
+class EmailThreadingTests {
+
+	static final String MAILBOX = "support@localhost";
+	static final String PASSWORD = "secret";
+	private static final String CUSTOMER = "customer@example.com";
+
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP_IMAP)
+			.withConfiguration(GreenMailConfiguration.aConfig().withUser(MAILBOX, MAILBOX, PASSWORD))
+			.withPerMethodLifecycle(false);
+
+	@Autowired
+	EmailService emailService;
+
+	@Autowired
+	InboundEmailRepository inboundRepository;
+
+	@Autowired
+	OutboxEmailRepository outboxRepository;
+
+	@Autowired
+	TicketRepository ticketRepository;
+
+	@Autowired
+	InboundQueue inboundQueue;
+
+	@Autowired
+	StubChatModel chatModel;
+
+	@Test
+	void burstOfFollowUpsGetsOneTicketAndOneReplyAndLaterFollowUpsKeepTheTicket() throws Exception {
+		deliver("<claim-1@example.com>", null, "Storm damage claim",
+				"My roof was damaged in last night's storm and I want to file a claim.");
+		deliver("<claim-2@example.com>", "<claim-1@example.com>", "Re: Storm damage claim",
+				"I forgot to mention my policy number, HP-1001.");
+		// No threading headers, matched by sender and subject
+		deliver("<claim-3@example.com>", null, "RE: Fwd: storm damage  claim",
+				"Photos of the damage will follow tomorrow.");
+
+		emailService.processEmails();
+
+		List<InboundEmail> burst = inboundRepository.findAll();
+		assertThat(burst).hasSize(3).allSatisfy(row -> {
+			assertThat(row.getStatus()).isEqualTo(InboundEmail.PROCESSED);
+			assertThat(row.getThreadKey()).isEqualTo("<claim-1@example.com>");
+		});
+		String ticketId = burst.get(0).getTicketId();
+		assertThat(ticketId).isNotNull();
+		assertThat(burst).extracting(InboundEmail::getTicketId).containsOnly(ticketId);
+		assertThat(ticketRepository.count()).isEqualTo(1);
+		assertThat(outboxRepository.findAll()).singleElement().satisfies(reply -> {
+			assertThat(reply.getMessageKey()).isEqualTo("<claim-3@example.com>");
+			assertThat(reply.getTicketId()).isEqualTo(ticketId);
+		});
+		// At most one categorization and one generation for the whole burst
+		assertThat(chatModel.getCalls()).isLessThanOrEqualTo(2);
+
+		deliver("<claim-4@example.com>", "<claim-2@example.com>", "Re: Storm damage claim", "Any news on my claim?");
+
+		emailService.processEmails();
+
+		assertThat(ticketRepository.count()).isEqualTo(1);
+		assertThat(outboxRepository.findAll()).hasSize(2)
+				.filteredOn(reply -> reply.getMessageKey().equals("<claim-4@example.com>"))
+				.singleElement()
+				.extracting(OutboxEmail::getTicketId)
+				.isEqualTo(ticketId);
+	}
+
+	@Test
+	void leavesRowsInRetryBackoffOutOfTheThread() {
+		Instant now = Instant.now();
+		List<InboundEmail> rows = List.of(
+				// Due
+				store("<backoff-1@example.com>", 0, now.minusSeconds(3), now.minusSeconds(1)),
+				// Failed once and waiting out its backoff
+				store("<backoff-2@example.com>", 1, now.minusSeconds(2), now.plusSeconds(600)),
+				// Fresh follow-up still settling
+				store("<backoff-3@example.com>", 0, now.minusSeconds(1), now.plusSeconds(30)));
+		try {
+			assertThat(inboundQueue.pendingInThread("<backoff-1@example.com>"))
+					.extracting(InboundEmail::getMessageKey)
+					.containsExactly("<backoff-1@example.com>", "<backoff-3@example.com>");
+		} finally {
+			inboundRepository.deleteAll(rows);
+		}
+	}
+
+	private InboundEmail store(String messageKey, int attempts, Instant receivedAt, Instant nextAttemptAt) {
+		InboundEmail row = new InboundEmail();
+		row.setMessageKey(messageKey);
+		row.setThreadKey("<backoff-1@example.com>");
+		row.setFromAddress(CUSTOMER);
+		row.setSender(CUSTOMER);
+		row.setSubject("Backoff");
+		row.setNormalizedSubject("backoff");
+		row.setContent("Follow-up " + messageKey);
+		row.setStatus(InboundEmail.RECEIVED);
+		row.setAttempts(attempts);
+		row.setReceivedAt(receivedAt);
+		row.setNextAttemptAt(nextAttemptAt);
+		return inboundRepository.save(row);
+	}
+
+	private static void deliver(String messageId, String inReplyTo, String subject, String text) throws MessagingException {
+		GreenMailUser user = greenMail.getUserManager().getUserByEmail(MAILBOX);
+		MimeMessage message = new MimeMessage(Session.getInstance(new Properties())) {
+			@Override
+			protected void updateMessageID() throws MessagingException {
+				setHeader("Message-ID", messageId);
+			}
+		};
+		message.setHeader("Message-ID", messageId);
+		if (inReplyTo != null) {
+			message.setHeader("In-Reply-To", inReplyTo);
+			message.setHeader("References", inReplyTo);
+		}
+		message.setFrom(new InternetAddress(CUSTOMER, "Customer"));
+		message.setRecipient(jakarta.mail.Message.RecipientType.TO, new InternetAddress(MAILBOX));
+		message.setSubject(subject);
+		message.setText(text, "UTF-8");
+		user.deliver(message);
+	}
+
+	/**
+	 * Stubs take the Ollama bean names, so they sit behind the real gateway like the real models.
+	 */
+	@TestConfiguration
+	static class StubModels {
+
+		@Bean
+		StubChatModel ollamaChatModel() {
+			return new StubChatModel(Duration.ZERO);
+		}
+
+		@Bean
+		EmbeddingModel ollamaEmbeddingModel() {
+			return new StubEmbeddingModel(384, Duration.ZERO);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import com.documentAi.documentAi.support.StubEmbeddingModel;
+import com.documentAi.documentAi.vectorstore.FileVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HybridRetrieverTests {
+
+	// Close to the classifier's training examples, so they land in their category's partition
+	private static final String CLAIM = "I would like to file a claim for the damage to my car after an accident, zebra.";
+	private static final String BILLING = "I was charged twice for my premium, please refund the duplicate payment, zebra.";
+	// No known terms, so it lands in the shared partition
+	private static final String SHARED = "Lorem ipsum dolor sit amet, zebra.";
+
+	@TempDir
+	Path tempDir;
+
+	private final StubEmbeddingModel embeddingModel = new StubEmbeddingModel(3);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void searchesTheCategoryAndSharedPartitions() throws Exception {
+		HybridRetriever retriever = retriever(5, CLAIM, BILLING, SHARED);
+
+		assertThat(contents(retriever.retrieve("zebra", EmailCategory.CLAIM, null))).containsExactlyInAnyOrder(CLAIM, SHARED);
+		assertThat(contents(retriever.retrieve("zebra", EmailCategory.BILLING, null))).containsExactlyInAnyOrder(BILLING, SHARED);
+	}
+
+	@Test
+	void searchesEveryPartitionForGeneralUnknownAndEmptyCategories() throws Exception {
+		HybridRetriever retriever = retriever(5, CLAIM, BILLING, SHARED);
+
+		assertThat(contents(retriever.retrieve("zebra", EmailCategory.GENERAL, null))).containsExactlyInAnyOrder(CLAIM, BILLING, SHARED);
+		assertThat(contents(retriever.retrieve("zebra", null, null))).containsExactlyInAnyOrder(CLAIM, BILLING, SHARED);
+		// No chunk reads like a complaint, so its partition does not exist
+		assertThat(contents(retriever.retrieve("zebra", EmailCategory.COMPLAINT, null))).containsExactlyInAnyOrder(CLAIM, BILLING, SHARED);
+	}
+
+	@Test
+	void returnsClearLexicalWinnersWithoutVectorSearch() throws Exception {
+		String roof = "storm roof, storm roof repair";
+		String garden = "storm season report for the garden shed and fence panels";
+		HybridRetriever retriever = retriever(1, roof, garden);
+
+		assertThat(contents(retriever.retrieve("storm roof", null, null))).containsExactly(roof);
+		assertThat(meterRegistry.counter("email.retrieval", "path", "lexical").count()).isEqualTo(1);
+	}
+
+	@Test
+	void reranksCloseLexicalCandidatesByVectorSimilarity() throws Exception {
+		String quote = "roof repair quote";
+		String estimate = "roof repair estimate";
+		embeddingModel.register(quote, new float[]{1, 0, 0});
+		embeddingModel.register(estimate, new float[]{0, 1, 0});
+		HybridRetriever retriever = retriever(1, quote, estimate);
+
+		assertThat(contents(retriever.retrieve("roof repair", null, new float[]{0, 1, 0}))).containsExactly(estimate);
+		assertThat(meterRegistry.counter("email.retrieval", "path", "hybrid").count()).isEqualTo(1);
+	}
+
+	@Test
+	void fallsBackToVectorSearchWhenTooFewChunksMatchLexically() throws Exception {
+		String roof = "roof repair quote";
+		String fence = "garden fence estimate";
+		embeddingModel.register(roof, new float[]{1, 0, 0});
+		embeddingModel.register(fence, new float[]{0, 1, 0});
+		embeddingModel.register("roof", new float[]{0.1f, 1, 0});
+		HybridRetriever retriever = retriever(2, roof, fence);
+
+		assertThat(contents(retriever.retrieve("roof", null, null))).containsExactly(fence, roof);
+		assertThat(meterRegistry.counter("email.retrieval", "path", "vector").count()).isEqualTo(1);
+	}
+
+	private HybridRetriever retriever(int topK, String... chunks) throws Exception {
+		FileVectorStore vectorStore = new FileVectorStore(embeddingModel, tempDir.resolve("vector-store.bin"), "stub");
+		for (int i = 0; i < chunks.length; i++) {
+			vectorStore.add(List.of(new Document("chunk-" + i, chunks[i], Map.of())));
+		}
+		EmailClassifier classifier = new EmailClassifier(new ClassPathResource("classifier/labelled-emails.tsv"), 0.9, 3);
+		HybridRetriever retriever = new HybridRetriever(vectorStore, classifier, embeddingModel, meterRegistry);
+		ReflectionTestUtils.setField(retriever, "topK", topK);
+		ReflectionTestUtils.setField(retriever, "candidates", 50);
+		ReflectionTestUtils.setField(retriever, "lexicalMargin", 1.5);
+		ReflectionTestUtils.setField(retriever, "chunkConfidence", 0.6);
+		retriever.rebuild();
+		return retriever;
+	}
+
+	private static List<String> contents(List<Document> documents) {
+		return documents.stream().map(Document::getContent).toList();
+	}
+}
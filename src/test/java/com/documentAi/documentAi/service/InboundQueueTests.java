@@ -0,0 +1,44 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundQueueTests {
+
+	@Test
+	void normalizesReplyAndForwardPrefixesCaseAndWhitespace() {
+		assertThat(InboundQueue.normalizeSubject("Re[2]: Fwd: Storm  damage\tclaim ")).isEqualTo("storm damage claim");
+		assertThat(InboundQueue.normalizeSubject("RE: re: FW: AW: Storm damage claim")).isEqualTo("storm damage claim");
+		assertThat(InboundQueue.normalizeSubject("Storm damage claim")).isEqualTo("storm damage claim");
+	}
+
+	@Test
+	void keepsPrefixesThatAreNotAtTheStart() {
+		assertThat(InboundQueue.normalizeSubject("Question re: my policy")).isEqualTo("question re: my policy");
+		assertThat(InboundQueue.normalizeSubject("Refund request")).isEqualTo("refund request");
+	}
+
+	@Test
+	void normalizesMissingSubjectsToEmpty() {
+		assertThat(InboundQueue.normalizeSubject(null)).isEmpty();
+		assertThat(InboundQueue.normalizeSubject("Re: ")).isEmpty();
+	}
+
+	@Test
+	void collectsMessageIdsFromInReplyToAndReferences() {
+		EmailMessage email = EmailMessage.builder()
+				.inReplyTo("<b@example.com>")
+				.references("<a@example.com>\r\n <b@example.com> junk")
+				.build();
+
+		assertThat(InboundQueue.referencedIds(email))
+				.containsExactly("<b@example.com>", "<a@example.com>", "<b@example.com>");
+	}
+
+	@Test
+	void findsNoIdsWithoutThreadingHeaders() {
+		assertThat(InboundQueue.referencedIds(EmailMessage.builder().subject("Hello").build())).isEmpty();
+	}
+}
@@ -0,0 +1,64 @@
+package com.documentAi.documentAi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineStageTests {
+
+	@Test
+	void runsQueuedTasksEarliestRankFirstAndTiesInSubmissionOrder() throws Exception {
+		try (PipelineStage stage = new PipelineStage("test", 1, 10)) {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			stage.submit(() -> {
+				started.countDown();
+				return release.await(5, TimeUnit.SECONDS);
+			}, 0);
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+			List<String> order = new CopyOnWriteArrayList<>();
+			List<CompletableFuture<Boolean>> queued = List.of(
+					stage.submit(() -> order.add("late"), 30),
+					stage.submit(() -> order.add("first"), 10),
+					stage.submit(() -> order.add("middle"), 20),
+					stage.submit(() -> order.add("second"), 10));
+			release.countDown();
+			CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+			assertThat(order).containsExactly("first", "second", "middle", "late");
+		}
+	}
+
+	@Test
+	void blocksSubmittersWhileWorkersAndQueueAreFull() throws Exception {
+		try (PipelineStage stage = new PipelineStage("test", 1, 1)) {
+			CountDownLatch release = new CountDownLatch(1);
+			stage.submit(() -> release.await(5, TimeUnit.SECONDS));
+			stage.submit(() -> true);
+
+			CompletableFuture<CompletableFuture<Boolean>> third = CompletableFuture.supplyAsync(() -> stage.submit(() -> true));
+			Thread.sleep(200);
+			assertThat(third).isNotDone();
+
+			release.countDown();
+			assertThat(third.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+
+	@Test
+	void rejectsMixingSubmissionTimeAndCallerRanks() {
+		try (PipelineStage stage = new PipelineStage("test", 1, 10)) {
+			stage.submit(() -> true, 1_000L);
+
+			assertThatThrownBy(() -> stage.submit(() -> true)).isInstanceOf(IllegalStateException.class);
+		}
+	}
+}
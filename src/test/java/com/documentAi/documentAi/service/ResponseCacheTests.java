@@ -0,0 +1,37 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTests {
+
+	private static final EmailMessage EMAIL = EmailMessage.builder()
+			.from("Jane Doe <jane.doe@example.com>")
+			.subject("Storm damage claim")
+			.content("Hello, my roof in Springfield was damaged last night. Please open a claim.")
+			.build();
+
+	@Test
+	void reusesGenericRepliesWithBothPlaceholders() {
+		assertThat(ResponseCache.isReusable("""
+				Subject: {ticketId} - Your claim
+				Body: <p>Dear {senderName},</p><p>We have opened a claim for the damage to your roof.</p>
+				""", EMAIL)).isTrue();
+	}
+
+	@Test
+	void rejectsRepliesMissingAPlaceholder() {
+		assertThat(ResponseCache.isReusable("Subject: {ticketId} - Your claim\nBody: <p>Dear customer,</p>", EMAIL)).isFalse();
+		assertThat(ResponseCache.isReusable("Subject: Your claim\nBody: <p>Dear {senderName},</p>", EMAIL)).isFalse();
+	}
+
+	@Test
+	void rejectsRepliesWithNumbersOrWordsOfTheEmail() {
+		assertThat(ResponseCache.isReusable("{ticketId} Dear {senderName}, your policy HP-1001 is covered.", EMAIL)).isFalse();
+		assertThat(ResponseCache.isReusable("{ticketId} Dear {senderName}, we will pay 500 dollars.", EMAIL)).isFalse();
+		assertThat(ResponseCache.isReusable("{ticketId} Dear {senderName}, thank you Jane.", EMAIL)).isFalse();
+		assertThat(ResponseCache.isReusable("{ticketId} Dear {senderName}, an adjuster will visit Springfield.", EMAIL)).isFalse();
+	}
+}
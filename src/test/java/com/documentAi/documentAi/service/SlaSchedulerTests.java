@@ -0,0 +1,57 @@
+package com.documentAi.documentAi.service;
+
+import com.documentAi.documentAi.model.EmailCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlaSchedulerTests {
+
+	private static final Instant NOW = Instant.parse("2026-01-05T09:00:00Z");
+
+	private final MockEnvironment environment = new MockEnvironment()
+			.withProperty("email.sla.complaint", "1h")
+			.withProperty("email.sla.policy-update", "2h")
+			.withProperty("email.sla.enquiry", "24h");
+
+	private SlaScheduler scheduler(Duration defaultSla, Duration maxWait) {
+		return new SlaScheduler(environment, new SimpleMeterRegistry(), defaultSla, maxWait);
+	}
+
+	@Test
+	void dueAtReceiptPlusTheCategorySla() {
+		SlaScheduler scheduler = scheduler(Duration.ofHours(4), Duration.ofHours(12));
+
+		assertThat(scheduler.deadline(EmailCategory.COMPLAINT, NOW)).isEqualTo(NOW.plus(Duration.ofHours(1)));
+		assertThat(scheduler.deadline(EmailCategory.POLICY_UPDATE, NOW)).isEqualTo(NOW.plus(Duration.ofHours(2)));
+		assertThat(scheduler.deadline(EmailCategory.BILLING, NOW)).isEqualTo(NOW.plus(Duration.ofHours(4)));
+		assertThat(scheduler.deadline(null, NOW)).isEqualTo(NOW.plus(Duration.ofHours(4)));
+	}
+
+	@Test
+	void capsEverySlaAtTheMaximumWait() {
+		SlaScheduler scheduler = scheduler(Duration.ofHours(20), Duration.ofHours(12));
+
+		assertThat(scheduler.deadline(EmailCategory.ENQUIRY, NOW)).isEqualTo(NOW.plus(Duration.ofHours(12)));
+		assertThat(scheduler.deadline(EmailCategory.BILLING, NOW)).isEqualTo(NOW.plus(Duration.ofHours(12)));
+		assertThat(scheduler.deadline(null, NOW)).isEqualTo(NOW.plus(Duration.ofHours(12)));
+	}
+
+	@Test
+	void ranksByDeadlineSoOldMailOvertakesUrgentNewMail() {
+		SlaScheduler scheduler = scheduler(Duration.ofHours(4), Duration.ofHours(12));
+
+		long freshComplaint = scheduler.rank(EmailCategory.COMPLAINT, NOW);
+		long freshEnquiry = scheduler.rank(EmailCategory.ENQUIRY, NOW);
+		long oldEnquiry = scheduler.rank(EmailCategory.ENQUIRY, NOW.minus(Duration.ofHours(11).plusMinutes(30)));
+
+		assertThat(freshComplaint).isLessThan(freshEnquiry);
+		assertThat(oldEnquiry).isLessThan(freshComplaint);
+		assertThat(freshComplaint).isEqualTo(NOW.plus(Duration.ofHours(1)).toEpochMilli());
+	}
+}
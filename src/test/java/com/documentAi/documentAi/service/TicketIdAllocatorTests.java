@@ -0,0 +1,95 @@
+package com.documentAi.documentAi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TicketIdAllocatorTests {
+
+	private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+	private static final long MASK = (1L << 40) - 1;
+	private static final long MULTIPLIER = 0x9E3779B97FL | 1;
+
+	@Test
+	void formatsDistinctValuesAsDistinctCrockfordIds() {
+		Set<String> ids = new HashSet<>();
+		for (long value = 0; value < 200_000; value++) {
+			ids.add(TicketIdAllocator.format(value));
+		}
+		for (long value = MASK - 1_000; value <= MASK; value++) {
+			ids.add(TicketIdAllocator.format(value));
+		}
+
+		assertThat(ids).hasSize(200_000 + 1_001)
+				.allMatch(id -> id.length() == 8 && id.chars().allMatch(c -> ALPHABET.indexOf(c) >= 0));
+	}
+
+	@Test
+	void scrambleIsInvertibleOnFortyBits() {
+		long inverse = BigInteger.valueOf(MULTIPLIER).modInverse(BigInteger.ONE.shiftLeft(40)).longValue();
+
+		for (long value : List.of(0L, 1L, 2L, 99L, 100L, 123_456_789L, MASK - 1, MASK)) {
+			assertThat((decode(TicketIdAllocator.format(value)) * inverse) & MASK).isEqualTo(value);
+		}
+		// Consecutive tickets do not look consecutive
+		assertThat(TicketIdAllocator.format(2)).isNotEqualTo(TicketIdAllocator.format(1)).isNotEqualTo("00000002");
+	}
+
+	@Test
+	void concurrentRefillsNeverHandOutAValueTwice() throws Exception {
+		int threads = 8;
+		int perThread = 5_000;
+		int blockSize = 7;
+		AtomicLong nextBlock = new AtomicLong(1);
+		AtomicLong reservations = new AtomicLong();
+		TicketIdAllocator allocator = new TicketIdAllocator(size -> {
+			reservations.incrementAndGet();
+			return nextBlock.getAndAdd(size);
+		}, blockSize);
+
+		Set<Long> values = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Void>> tasks = IntStream.range(0, threads).<Callable<Void>>mapToObj(i -> () -> {
+				start.await();
+				for (int n = 0; n < perThread; n++) {
+					assertThat(values.add(allocator.nextValue())).isTrue();
+				}
+				return null;
+			}).toList();
+			List<Future<Void>> futures = tasks.stream().map(executor::submit).toList();
+			start.countDown();
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(values).hasSize(threads * perThread).allMatch(value -> value >= 1 && value < nextBlock.get());
+		// No block is abandoned while it still has values left
+		assertThat(reservations.get()).isEqualTo((threads * perThread + blockSize - 1) / blockSize);
+	}
+
+	private static long decode(String id) {
+		long value = 0;
+		for (char c : id.toCharArray()) {
+			value = (value << 5) | ALPHABET.indexOf(c);
+		}
+		return value;
+	}
+}
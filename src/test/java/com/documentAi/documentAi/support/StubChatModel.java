@@ -0,0 +1,80 @@
+package com.documentAi.documentAi.support;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline {@link ChatModel} for the email prompts. Categorization prompts get a category
+ * picked from keywords in the email; every other prompt gets a reply template in the
+ * format {@code EmailService} expects. Each call takes the configured latency.
+ */
+public class StubChatModel implements ChatModel {
+
+    private static final String REPLY = """
+            Subject: {ticketId} - We have received your request
+            Body:
+            <p>Dear {senderName},</p>
+
+            <p>Thank you for contacting us. A member of our team is reviewing your request.</p>
+
+            <p>Please quote {ticketId} in any further correspondence.</p>
+            <p>Sincerely,<br>DataNinjas Insurance corp</p>
+            """;
+
+    private final Duration latency;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    public StubChatModel(Duration latency) {
+        this.latency = latency;
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.incrementAndGet();
+        StubEmbeddingModel.pause(latency);
+        String system = text(prompt.getInstructions(), MessageType.SYSTEM);
+        String answer = system.contains("categorization") ? category(text(prompt.getInstructions(), MessageType.USER)) : REPLY;
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+    }
+
+    private static String text(List<Message> messages, MessageType type) {
+        return messages.stream()
+                .filter(message -> message.getMessageType() == type)
+                .map(Message::getContent)
+                .reduce("", (a, b) -> a + "\n" + b);
+    }
+
+    private static String category(String email) {
+        String text = email.toLowerCase(Locale.ROOT);
+        if (text.contains("claim") || text.contains("damage")) {
+            return "CLAIM";
+        }
+        if (text.contains("invoice") || text.contains("premium") || text.contains("payment")) {
+            return "BILLING";
+        }
+        if (text.contains("address") || text.contains("beneficiary")) {
+            return "POLICY_UPDATE";
+        }
+        if (text.contains("unhappy") || text.contains("complain")) {
+            return "COMPLAINT";
+        }
+        if (text.contains("quote") || text.contains("coverage")) {
+            return "ENQUIRY";
+        }
+        return "GENERAL";
+    }
+}
@@ -0,0 +1,94 @@
+package com.documentAi.documentAi.support;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offline {@link EmbeddingModel}: returns registered vectors for known texts and a
+ * deterministic pseudo-random vector for anything else. An optional latency per call
+ * stands in for the model server.
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final Duration latency;
+    private final Map<String, float[]> vectors = new ConcurrentHashMap<>();
+
+    public StubEmbeddingModel(int dimensions) {
+        this(dimensions, Duration.ZERO);
+    }
+
+    public StubEmbeddingModel(int dimensions, Duration latency) {
+        this.dimensions = dimensions;
+        this.latency = latency;
+    }
+
+    public void register(String text, float[] vector) {
+        vectors.put(text, vector);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        pause(latency);
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> texts = request.getInstructions();
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(embed(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] registered = vectors.get(text);
+        if (registered != null) {
+            return registered;
+        }
+        SplittableRandom random = new SplittableRandom(Arrays.hashCode(text.getBytes(StandardCharsets.UTF_8)));
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        pause(latency);
+        return embed(document.getContent());
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        pause(latency);
+        return texts.stream().map(this::embed).toList();
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public static void pause(Duration latency) {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
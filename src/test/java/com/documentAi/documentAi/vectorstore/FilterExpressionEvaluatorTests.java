@@ -0,0 +1,36 @@
+package com.documentAi.documentAi.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilterExpressionEvaluatorTests {
+
+	private final FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+	@Test
+	void comparesNumbersOfDifferentTypes() {
+		Map<String, Object> metadata = Map.of("year", 2024L);
+
+		assertThat(FilterExpressionEvaluator.matches(b.gt("year", 2020).build(), metadata)).isTrue();
+		assertThat(FilterExpressionEvaluator.matches(b.gte("year", 2024.0).build(), metadata)).isTrue();
+		assertThat(FilterExpressionEvaluator.matches(b.lt("year", 2024).build(), metadata)).isFalse();
+		assertThat(FilterExpressionEvaluator.matches(b.lte("year", 2024).build(), metadata)).isTrue();
+	}
+
+	@Test
+	void comparisonsOnAMissingKeyNeverMatch() {
+		Map<String, Object> metadata = Map.of("source", "policies.pdf");
+
+		for (Filter.Expression expression : new Filter.Expression[]{
+				b.gt("year", 2020).build(), b.gte("year", 2020).build(),
+				b.lt("year", 2020).build(), b.lte("year", 2020).build()}) {
+			assertThat(FilterExpressionEvaluator.matches(expression, metadata)).as(expression.toString()).isFalse();
+		}
+		assertThat(FilterExpressionEvaluator.matches(b.not(b.lt("year", 2020)).build(), metadata)).isTrue();
+	}
+}
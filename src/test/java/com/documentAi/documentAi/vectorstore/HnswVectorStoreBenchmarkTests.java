@@ -0,0 +1,133 @@
+package com.documentAi.documentAi.vectorstore;
+
+import com.documentAi.documentAi.support.StubEmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recall and latency of the HNSW-backed {@link FileVectorStore} against the brute-force
+ * {@link SimpleVectorStore} on clustered synthetic embeddings. The recall benchmark
+ * indexes 5,000 documents and only runs with {@code -P loadtest}.
+ */
+@Slf4j
+class HnswVectorStoreBenchmarkTests {
+
+	private static final int DOCUMENTS = 5_000;
+	private static final int FILTERED_DOCUMENTS = 1_000;
+	private static final int QUERIES = 200;
+	private static final int DIMENSIONS = 128;
+	private static final int TOP_K = 5;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	@Tag("loadtest")
+	void hnswRecallAndLatencyAgainstSimpleVectorStore() {
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS);
+		List<Document> documents = clusteredDocuments(embeddingModel, DOCUMENTS);
+
+		SimpleVectorStore exact = new SimpleVectorStore(embeddingModel);
+		exact.add(documents);
+		FileVectorStore hnsw = new FileVectorStore(embeddingModel, tempDir.resolve("store.bin"), "stub", 16, 200, 64, 0);
+		hnsw.add(documents);
+
+		List<String> queries = queries(embeddingModel);
+		long exactNanos = 0;
+		long hnswNanos = 0;
+		int found = 0;
+		for (String query : queries) {
+			SearchRequest request = SearchRequest.query(query).withTopK(TOP_K);
+			long start = System.nanoTime();
+			Set<String> expected = ids(exact, request);
+			exactNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			Set<String> actual = ids(hnsw, request);
+			hnswNanos += System.nanoTime() - start;
+			actual.retainAll(expected);
+			found += actual.size();
+		}
+
+		double recall = (double) found / (queries.size() * TOP_K);
+		log.info("recall@{}={} simple={}us/query hnsw={}us/query", TOP_K, "%.3f".formatted(recall),
+				"%.1f".formatted(exactNanos / 1_000.0 / queries.size()), "%.1f".formatted(hnswNanos / 1_000.0 / queries.size()));
+		assertThat(recall).isGreaterThanOrEqualTo(0.9);
+	}
+
+	@Test
+	void metadataFilterOnlyReturnsMatchingDocuments() {
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS);
+		FileVectorStore hnsw = new FileVectorStore(embeddingModel, tempDir.resolve("filtered.bin"), "stub", 16, 200, 64, 0);
+		hnsw.add(clusteredDocuments(embeddingModel, FILTERED_DOCUMENTS));
+
+		SearchRequest request = SearchRequest.query("query-0").withTopK(TOP_K)
+				.withFilterExpression(new FilterExpressionBuilder().eq("cluster", 3).build());
+
+		List<Document> results = hnsw.similaritySearch(request);
+
+		assertThat(results).hasSize(TOP_K);
+		assertThat(results).allSatisfy(document -> assertThat(document.getMetadata().get("cluster")).isEqualTo(3));
+	}
+
+	private static List<Document> clusteredDocuments(StubEmbeddingModel embeddingModel, int count) {
+		SplittableRandom random = new SplittableRandom(7);
+		float[][] centroids = new float[50][];
+		for (int c = 0; c < centroids.length; c++) {
+			centroids[c] = gaussian(random, 1.0);
+		}
+		List<Document> documents = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int cluster = i % centroids.length;
+			float[] noise = gaussian(random, 0.3);
+			for (int d = 0; d < DIMENSIONS; d++) {
+				noise[d] += centroids[cluster][d];
+			}
+			String text = "doc-" + i;
+			embeddingModel.register(text, noise);
+			documents.add(new Document(text, text, Map.of("cluster", cluster)));
+		}
+		return documents;
+	}
+
+	private static List<String> queries(StubEmbeddingModel embeddingModel) {
+		SplittableRandom random = new SplittableRandom(11);
+		List<String> queries = new ArrayList<>(QUERIES);
+		for (int i = 0; i < QUERIES; i++) {
+			String text = "query-" + i;
+			embeddingModel.register(text, gaussian(random, 1.0));
+			queries.add(text);
+		}
+		return queries;
+	}
+
+	private static float[] gaussian(SplittableRandom random, double scale) {
+		float[] vector = new float[DIMENSIONS];
+		for (int d = 0; d < DIMENSIONS; d++) {
+			vector[d] = (float) (random.nextGaussian() * scale);
+		}
+		return vector;
+	}
+
+	private static Set<String> ids(VectorStore store, SearchRequest request) {
+		Set<String> ids = new HashSet<>();
+		store.similaritySearch(request).forEach(document -> ids.add(document.getId()));
+		return ids;
+	}
+}